@@ -0,0 +1,92 @@
+package tn.esprit.spring.kaddem.benchmarks;
+
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import tn.esprit.spring.kaddem.KaddemApplication;
+import tn.esprit.spring.kaddem.entities.Contrat;
+import tn.esprit.spring.kaddem.entities.Equipe;
+import tn.esprit.spring.kaddem.entities.Etudiant;
+import tn.esprit.spring.kaddem.entities.Niveau;
+import tn.esprit.spring.kaddem.entities.Option;
+import tn.esprit.spring.kaddem.entities.Specialite;
+import tn.esprit.spring.kaddem.repositories.ContratRepository;
+import tn.esprit.spring.kaddem.repositories.EquipeRepository;
+import tn.esprit.spring.kaddem.repositories.EtudiantRepository;
+import tn.esprit.spring.kaddem.services.ContratSnapshot;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * Boots the application without the web layer against a private in-memory H2 database and seeds it.
+ * Volumes are derived from the number of contracts : one student per 4 contracts, one team per 5 students.
+ */
+final class BenchmarkContext {
+    static final LocalDate ORIGINE = LocalDate.of(2019, 1, 1);
+
+    private BenchmarkContext() {
+    }
+
+    static ConfigurableApplicationContext demarrer(String nomBase) {
+        return new SpringApplicationBuilder(KaddemApplication.class)
+                .web(WebApplicationType.NONE)
+                .properties(
+                        "spring.datasource.url=jdbc:h2:mem:" + nomBase + ";MODE=MySQL;DB_CLOSE_DELAY=-1",
+                        "spring.datasource.driver-class-name=org.h2.Driver",
+                        "spring.datasource.username=sa",
+                        "spring.datasource.password=",
+                        "spring.jpa.hibernate.ddl-auto=create-drop",
+                        "spring.flyway.enabled=false",
+                        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+                        "spring.jpa.show-sql=false")
+                .run();
+    }
+
+    static void peupler(ConfigurableApplicationContext context, int nbContrats, long graine) {
+        EtudiantRepository etudiantRepository = context.getBean(EtudiantRepository.class);
+        ContratRepository contratRepository = context.getBean(ContratRepository.class);
+        EquipeRepository equipeRepository = context.getBean(EquipeRepository.class);
+        TransactionTemplate transaction = new TransactionTemplate(context.getBean(PlatformTransactionManager.class));
+        Random random = new Random(graine);
+        int nbEtudiants = Math.max(1, nbContrats / 4);
+        int nbEquipes = Math.max(1, nbEtudiants / 5);
+
+        List<Etudiant> etudiants = new ArrayList<>(nbEtudiants);
+        transaction.executeWithoutResult(status -> {
+            for (int i = 0; i < nbEtudiants; i++) {
+                etudiants.add(etudiantRepository.save(new Etudiant("nom" + i, "prenom" + i,
+                        Option.values()[random.nextInt(Option.values().length)])));
+            }
+        });
+        transaction.executeWithoutResult(status -> {
+            for (int i = 0; i < nbContrats; i++) {
+                LocalDate debut = ORIGINE.plusDays(random.nextInt(5 * 365));
+                LocalDate fin = debut.plusDays(90 + random.nextInt(2 * 365));
+                Contrat contrat = new Contrat(java.sql.Date.valueOf(debut), java.sql.Date.valueOf(fin),
+                        Specialite.values()[random.nextInt(Specialite.values().length)],
+                        random.nextInt(4) == 0, 500 + random.nextInt(2000));
+                contrat.setEtudiant(etudiants.get(random.nextInt(nbEtudiants)));
+                contratRepository.save(contrat);
+            }
+        });
+        transaction.executeWithoutResult(status -> {
+            for (int i = 0; i < nbEquipes; i++) {
+                Set<Etudiant> membres = new HashSet<>();
+                for (int j = 0; j < 5; j++) {
+                    membres.add(etudiants.get(random.nextInt(nbEtudiants)));
+                }
+                Niveau niveau = Niveau.values()[random.nextInt(Niveau.values().length)];
+                equipeRepository.save(new Equipe("equipe" + i, niveau, membres, null));
+            }
+        });
+        // seeded behind the services' back : the snapshot is rebuilt from the table
+        context.getBean(ContratSnapshot.class).recharger();
+    }
+}
@@ -0,0 +1,29 @@
+package tn.esprit.spring.kaddem.benchmarks;
+
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Entry point of the benchmarks profile. Accepts the usual JMH command line (-p, -f, -wi, include regex...)
+ * and always writes the results as JSON, to target/jmh-result.json unless -rff says otherwise.
+ */
+public final class KaddemBenchmarks {
+
+    private KaddemBenchmarks() {
+    }
+
+    public static void main(String[] args) throws RunnerException, CommandLineOptionException {
+        CommandLineOptions ligneDeCommande = new CommandLineOptions(args);
+        Options options = new OptionsBuilder()
+                .parent(ligneDeCommande)
+                .resultFormat(ResultFormatType.JSON)
+                .result(ligneDeCommande.getResult().orElse("target/jmh-result.json"))
+                .build();
+        new Runner(options).run();
+    }
+}
@@ -0,0 +1,103 @@
+package tn.esprit.spring.kaddem.benchmarks;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+import tn.esprit.spring.kaddem.dto.ContratVue;
+import tn.esprit.spring.kaddem.dto.PromotionEquipe;
+import tn.esprit.spring.kaddem.entities.Contrat;
+import tn.esprit.spring.kaddem.services.IContratService;
+import tn.esprit.spring.kaddem.services.IEquipeService;
+import tn.esprit.spring.kaddem.services.ModeAnalytique;
+
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ServiceBenchmarks {
+
+    @Param({"1000", "10000"})
+    public int nbContrats;
+
+    @Param({"BASE", "SNAPSHOT"})
+    public ModeAnalytique modeAnalytique;
+
+    private ConfigurableApplicationContext context;
+    private IContratService contratService;
+    private IEquipeService equipeService;
+    private ObjectMapper objectMapper;
+    private List<ContratVue> pageContrats;
+    private Date debut;
+    private Date fin;
+    private int idContrat;
+
+    @Setup(Level.Trial)
+    public void demarrer() {
+        context = BenchmarkContext.demarrer("bench" + nbContrats);
+        BenchmarkContext.peupler(context, nbContrats, 42L);
+        contratService = context.getBean(IContratService.class);
+        contratService.changerModeAnalytique(modeAnalytique);
+        equipeService = context.getBean(IEquipeService.class);
+        objectMapper = context.getBean(ObjectMapper.class);
+        pageContrats = contratService.retrieveContratsPage(null, null, null, 500).getContent();
+        debut = java.sql.Date.valueOf(BenchmarkContext.ORIGINE.plusYears(1));
+        fin = java.sql.Date.valueOf(BenchmarkContext.ORIGINE.plusYears(3));
+        idContrat = pageContrats.get(pageContrats.size() / 2).getIdContrat();
+    }
+
+    @TearDown(Level.Trial)
+    public void arreter() {
+        context.close();
+    }
+
+    @Benchmark
+    public float chiffreAffaireEntreDeuxDates() {
+        return contratService.getChiffreAffaireEntreDeuxDates(debut, fin);
+    }
+
+    @Benchmark
+    public Integer nbContratsValides() {
+        return contratService.nbContratsValides(debut, fin);
+    }
+
+    // the first invocation archives the expired contracts, later ones measure the steady state of the daily job
+    @Benchmark
+    public void retrieveAndUpdateStatusContrat() {
+        contratService.retrieveAndUpdateStatusContrat();
+    }
+
+    // dry run : the evaluation query is the cost being tracked, and it keeps the data identical between iterations
+    @Benchmark
+    public List<PromotionEquipe> evoluerEquipes() {
+        return equipeService.evoluerEquipes(true);
+    }
+
+    @Benchmark
+    public Contrat affectContratToEtudiant() {
+        return contratService.affectContratToEtudiant(idContrat, "nom0", "prenom0");
+    }
+
+    @Benchmark
+    public byte[] serialisationContrats() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(pageContrats);
+    }
+}
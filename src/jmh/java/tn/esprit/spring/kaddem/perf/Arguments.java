@@ -0,0 +1,38 @@
+package tn.esprit.spring.kaddem.perf;
+
+import java.util.HashMap;
+import java.util.Map;
+
+// key=value command line of the perf tools, e.g. contrats=1000000 graine=42
+final class Arguments {
+    private final Map<String, String> valeurs = new HashMap<>();
+
+    Arguments(String[] args) {
+        for (String arg : args) {
+            int egal = arg.indexOf('=');
+            if (egal <= 0) {
+                throw new IllegalArgumentException("Argument attendu sous la forme cle=valeur : " + arg);
+            }
+            valeurs.put(arg.substring(0, egal), arg.substring(egal + 1));
+        }
+    }
+
+    String texte(String cle, String defaut) {
+        return valeurs.getOrDefault(cle, defaut);
+    }
+
+    int entier(String cle, int defaut) {
+        String valeur = valeurs.get(cle);
+        return valeur == null ? defaut : Integer.parseInt(valeur);
+    }
+
+    double reel(String cle, double defaut) {
+        String valeur = valeurs.get(cle);
+        return valeur == null ? defaut : Double.parseDouble(valeur);
+    }
+
+    long entierLong(String cle, long defaut) {
+        String valeur = valeurs.get(cle);
+        return valeur == null ? defaut : Long.parseLong(valeur);
+    }
+}
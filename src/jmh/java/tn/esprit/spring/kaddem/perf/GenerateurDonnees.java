@@ -0,0 +1,188 @@
+package tn.esprit.spring.kaddem.perf;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import tn.esprit.spring.kaddem.KaddemApplication;
+import tn.esprit.spring.kaddem.entities.Niveau;
+import tn.esprit.spring.kaddem.entities.Option;
+import tn.esprit.spring.kaddem.entities.Specialite;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * Seeds a database at production scale : universites -> departements -> etudiants -> contrats / equipes.
+ * Students are spread over the departments and contracts over the students with Zipf skew, so a few departments
+ * are large and a few students hold many contracts. Rows go out as JDBC batches with explicit ids,
+ * the same seed always gives the same data set.
+ *
+ * mvn -Pbenchmarks compile exec:exec -Dbenchmarks.main=tn.esprit.spring.kaddem.perf.GenerateurDonnees
+ *     -Dbenchmarks.args="contrats=1000000 url=jdbc:mysql://localhost:3306/kaddemperf?createDatabaseIfNotExist=true"
+ * Without url= the data goes to an H2 file database under target/perf, reusable by HarnaisCharge.
+ */
+@Slf4j
+public final class GenerateurDonnees {
+    static final String URL_PAR_DEFAUT = "jdbc:h2:file:./target/perf/kaddem;MODE=MySQL;DB_CLOSE_DELAY=-1";
+    static final LocalDate ORIGINE = LocalDate.now().minusYears(6);
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transaction;
+    private final boolean h2;
+    private final int tailleLot;
+
+    private GenerateurDonnees(ConfigurableApplicationContext context, boolean h2, int tailleLot) {
+        this.jdbcTemplate = context.getBean(JdbcTemplate.class);
+        this.transaction = new TransactionTemplate(context.getBean(PlatformTransactionManager.class));
+        this.h2 = h2;
+        this.tailleLot = tailleLot;
+    }
+
+    public static void main(String[] args) {
+        Arguments arguments = new Arguments(args);
+        String url = arguments.texte("url", URL_PAR_DEFAUT);
+        try (ConfigurableApplicationContext context = demarrer(url, arguments, WebApplicationType.NONE, 0)) {
+            new GenerateurDonnees(context, url.startsWith("jdbc:h2:"), arguments.entier("lot", 5000)).generer(
+                    arguments.entier("universites", 20),
+                    arguments.entier("departements", 200),
+                    arguments.entier("etudiants", 250_000),
+                    arguments.entier("contrats", 1_000_000),
+                    arguments.entier("equipes", 25_000),
+                    arguments.entier("membres", 5),
+                    arguments.reel("skewDepartements", 0.8),
+                    arguments.reel("skewContrats", 1.1),
+                    new Random(arguments.entierLong("graine", 42L)));
+        }
+    }
+
+    // the application itself, so that the target database gets its schema : Flyway on MySQL, Hibernate on H2
+    static ConfigurableApplicationContext demarrer(String url, Arguments arguments, WebApplicationType type, int port) {
+        List<String> proprietes = new ArrayList<>(List.of(
+                "spring.datasource.url=" + url,
+                "spring.datasource.username=" + arguments.texte("utilisateur", url.startsWith("jdbc:h2:") ? "sa" : "root"),
+                "spring.datasource.password=" + arguments.texte("motDePasse", ""),
+                "server.port=" + port,
+                "kaddem.sql.seuil-lent-ms=" + arguments.texte("seuilLentMs", "200")));
+        if (url.startsWith("jdbc:h2:")) {
+            proprietes.add("spring.datasource.driver-class-name=org.h2.Driver");
+            proprietes.add("spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect");
+            // the migrations are MySQL scripts : the embedded database gets its schema from Hibernate
+            proprietes.add("spring.flyway.enabled=false");
+            proprietes.add("spring.jpa.hibernate.ddl-auto=update");
+        }
+        return new SpringApplicationBuilder(KaddemApplication.class)
+                .web(type)
+                .properties(proprietes.toArray(new String[0]))
+                .run();
+    }
+
+    void generer(int nbUniversites, int nbDepartements, int nbEtudiants, int nbContrats, int nbEquipes, int nbMembres,
+                 double skewDepartements, double skewContrats, Random random) {
+        Long existants = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM contrat", Long.class);
+        if (existants != null && existants > 0) {
+            throw new IllegalStateException("La base contient déjà " + existants + " contrat(s), utiliser une base vide");
+        }
+        long debut = System.nanoTime();
+
+        inserer("universite", "INSERT INTO universite (id_univ, nom_univ) VALUES (?, ?)", nbUniversites,
+                i -> new Object[]{i, "universite" + i});
+        inserer("departement", "INSERT INTO departement (id_depart, nom_depart) VALUES (?, ?)", nbDepartements,
+                i -> new Object[]{i, "departement" + i});
+        inserer("universite_departements", "INSERT INTO universite_departements (universite_id_univ, departements_id_depart)"
+                + " VALUES (?, ?)", nbDepartements, i -> new Object[]{(i - 1) % nbUniversites + 1, i});
+
+        Zipf departements = new Zipf(nbDepartements, skewDepartements);
+        Option[] options = Option.values();
+        inserer("etudiant", "INSERT INTO etudiant (id_etudiant, nom_e, prenom_e, op, departement_id_depart)"
+                + " VALUES (?, ?, ?, ?, ?)", nbEtudiants,
+                i -> new Object[]{i, "nom" + i, "prenom" + i, options[random.nextInt(options.length)].name(),
+                        departements.tirer(random)});
+
+        Zipf etudiants = new Zipf(nbEtudiants, skewContrats);
+        Specialite[] specialites = Specialite.values();
+        LocalDate aujourdhui = LocalDate.now();
+        inserer("contrat", "INSERT INTO contrat (id_contrat, date_debut_contrat, date_fin_contrat, specialite, archive,"
+                + " montant_contrat, etudiant_id_etudiant) VALUES (?, ?, ?, ?, ?, ?, ?)", nbContrats, i -> {
+            LocalDate dateDebut = ORIGINE.plusDays(random.nextInt(6 * 365));
+            LocalDate dateFin = dateDebut.plusDays(90 + random.nextInt(2 * 365));
+            // most ended contracts went through the archiving job, a few are still waiting for it
+            boolean archive = dateFin.isBefore(aujourdhui) && random.nextInt(10) != 0;
+            return new Object[]{i, java.sql.Date.valueOf(dateDebut), java.sql.Date.valueOf(dateFin),
+                    specialites[random.nextInt(specialites.length)].name(), archive, 500 + random.nextInt(2000),
+                    etudiants.tirer(random)};
+        });
+
+        Niveau[] niveaux = Niveau.values();
+        inserer("detail_equipe", "INSERT INTO detail_equipe (id_detail_equipe, salle, thematique) VALUES (?, ?, ?)",
+                nbEquipes, i -> new Object[]{i, 100 + random.nextInt(400), "thematique" + random.nextInt(50)});
+        inserer("equipe", "INSERT INTO equipe (id_equipe, nom_equipe, niveau, detail_equipe_id_detail_equipe)"
+                + " VALUES (?, ?, ?, ?)", nbEquipes,
+                i -> new Object[]{i, "equipe" + i, niveaux[random.nextInt(niveaux.length)].name(), i});
+        List<Object[]> membres = new ArrayList<>(tailleLot);
+        for (int equipe = 1; equipe <= nbEquipes; equipe++) {
+            Set<Integer> dejaMembres = new HashSet<>();
+            while (dejaMembres.size() < Math.min(nbMembres, nbEtudiants)) {
+                int etudiant = random.nextInt(nbEtudiants) + 1;
+                if (dejaMembres.add(etudiant)) {
+                    membres.add(new Object[]{equipe, etudiant});
+                }
+            }
+            if (membres.size() >= tailleLot) {
+                envoyer("INSERT INTO equipe_etudiants (equipe_id_equipe, etudiants_id_etudiant) VALUES (?, ?)", membres);
+                membres.clear();
+            }
+        }
+        envoyer("INSERT INTO equipe_etudiants (equipe_id_equipe, etudiants_id_etudiant) VALUES (?, ?)", membres);
+
+        if (h2) {
+            // explicit ids do not move H2 identity columns, MySQL AUTO_INCREMENT follows on its own
+            recalerIdentite("universite", "id_univ", nbUniversites);
+            recalerIdentite("departement", "id_depart", nbDepartements);
+            recalerIdentite("etudiant", "id_etudiant", nbEtudiants);
+            recalerIdentite("contrat", "id_contrat", nbContrats);
+            recalerIdentite("detail_equipe", "id_detail_equipe", nbEquipes);
+            recalerIdentite("equipe", "id_equipe", nbEquipes);
+        }
+        log.info("Jeu de données généré en {} s : {} universités, {} départements, {} étudiants, {} contrats, {} équipes",
+                (System.nanoTime() - debut) / 1_000_000_000, nbUniversites, nbDepartements, nbEtudiants, nbContrats,
+                nbEquipes);
+    }
+
+    private void inserer(String table, String sql, int nb, Ligne ligne) {
+        List<Object[]> lot = new ArrayList<>(tailleLot);
+        for (int i = 1; i <= nb; i++) {
+            lot.add(ligne.valeurs(i));
+            if (lot.size() == tailleLot) {
+                envoyer(sql, lot);
+                lot.clear();
+            }
+            if (i % 100_000 == 0) {
+                log.info("{} : {} / {}", table, i, nb);
+            }
+        }
+        envoyer(sql, lot);
+    }
+
+    private void envoyer(String sql, List<Object[]> lot) {
+        if (!lot.isEmpty()) {
+            transaction.executeWithoutResult(status -> jdbcTemplate.batchUpdate(sql, lot));
+        }
+    }
+
+    private void recalerIdentite(String table, String colonne, int dernierId) {
+        jdbcTemplate.execute("ALTER TABLE " + table + " ALTER COLUMN " + colonne + " RESTART WITH " + (dernierId + 1));
+    }
+
+    @FunctionalInterface
+    private interface Ligne {
+        Object[] valeurs(int id);
+    }
+}
@@ -0,0 +1,230 @@
+package tn.esprit.spring.kaddem.perf;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.context.ConfigurableApplicationContext;
+import tn.esprit.spring.kaddem.dto.KeysetPage;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * Drives the REST endpoints with a weighted mix of requests at a fixed concurrency and reports, per endpoint,
+ * throughput, errors and latency percentiles (console and target/perf/charge-result.json).
+ * Ids are drawn within the volumes given by GenerateurDonnees (same arguments), students by the same Zipf skew.
+ *
+ * Closed loop by default : each of the concurrence workers sends its next request when the previous one returns.
+ * With debit=N (requests per second, all workers together) the schedule is fixed in advance and the latency is
+ * measured from the planned start, so a stalled server is not hidden by workers that stop sending.
+ *
+ * mvn -Pbenchmarks compile exec:exec -Dbenchmarks.main=tn.esprit.spring.kaddem.perf.HarnaisCharge
+ *     -Dbenchmarks.args="concurrence=32 duree=120 echauffement=20 contrats=1000000"
+ * base= targets a running instance (default http://localhost:8089/kaddem) ; url= boots the application
+ * in this JVM on that database first, e.g. url=jdbc:h2:file:./target/perf/kaddem;MODE=MySQL;DB_CLOSE_DELAY=-1.
+ */
+@Slf4j
+public final class HarnaisCharge {
+    private final HttpClient client;
+    private final String base;
+    private final List<Cible> cibles = new ArrayList<>();
+    private final int poidsTotal;
+
+    private HarnaisCharge(String base, Arguments arguments) {
+        this.base = base;
+        this.client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(5))
+                .build();
+        int nbContrats = arguments.entier("contrats", 1_000_000);
+        int nbEtudiants = arguments.entier("etudiants", 250_000);
+        int nbEquipes = arguments.entier("equipes", 25_000);
+        int nbDepartements = arguments.entier("departements", 200);
+        Zipf etudiants = new Zipf(nbEtudiants, arguments.reel("skewContrats", 1.1));
+        Zipf departements = new Zipf(nbDepartements, arguments.reel("skewDepartements", 0.8));
+        LocalDate origine = GenerateurDonnees.ORIGINE;
+
+        ajouter("GET contrat/retrieve-contrat", "GET", 20, r -> "/contrat/retrieve-contrat/" + (r.nextInt(nbContrats) + 1));
+        ajouter("GET contrat/contrats", "GET", 15, r -> "/contrat/contrats?taille=100&curseur="
+                + KeysetPage.encodeCursor(r.nextInt(nbContrats)));
+        ajouter("GET etudiant/retrieve-etudiant", "GET", 15, r -> "/etudiant/retrieve-etudiant/" + etudiants.tirer(r));
+        ajouter("GET equipe/retrieve-equipe", "GET", 10, r -> "/equipe/retrieve-equipe/" + (r.nextInt(nbEquipes) + 1));
+        ajouter("GET etudiant/getEtudiantsByDepartement", "GET", 5,
+                r -> "/etudiant/getEtudiantsByDepartement/" + departements.tirer(r));
+        ajouter("GET departement/retrieve-all-departements", "GET", 5, r -> "/departement/retrieve-all-departements");
+        ajouter("GET universite/retrieve-all-universites", "GET", 5, r -> "/universite/retrieve-all-universites");
+        ajouter("GET contrat/getnbContratsValides", "GET", 10, r -> {
+            LocalDate debut = origine.plusDays(r.nextInt(5 * 365));
+            return "/contrat/getnbContratsValides/" + debut + "/" + debut.plusDays(30 + r.nextInt(365));
+        });
+        ajouter("GET contrat/chiffreAffaireParSpecialite", "GET", 5, r -> {
+            LocalDate debut = origine.plusDays(r.nextInt(5 * 365));
+            return "/contrat/chiffreAffaireParSpecialite/" + debut + "/" + debut.plusDays(30 + r.nextInt(365));
+        });
+        ajouter("PUT contrat/assignContratToEtudiant", "PUT", 10, r -> {
+            int etudiant = etudiants.tirer(r);
+            return "/contrat/assignContratToEtudiant/" + (r.nextInt(nbContrats) + 1) + "/nom" + etudiant + "/prenom" + etudiant;
+        });
+        this.poidsTotal = cibles.stream().mapToInt(c -> c.poids).sum();
+    }
+
+    public static void main(String[] args) throws InterruptedException, IOException {
+        Arguments arguments = new Arguments(args);
+        String url = arguments.texte("url", null);
+        ConfigurableApplicationContext context = null;
+        String base = arguments.texte("base", "http://localhost:8089/kaddem");
+        if (url != null) {
+            int port = arguments.entier("port", 8089);
+            context = GenerateurDonnees.demarrer(url, arguments, WebApplicationType.SERVLET, port);
+            base = "http://localhost:" + port + "/kaddem";
+        }
+        try {
+            HarnaisCharge harnais = new HarnaisCharge(base, arguments);
+            harnais.executer(arguments.entier("concurrence", 16), arguments.entier("echauffement", 10),
+                    arguments.entier("duree", 60), arguments.entier("debit", 0));
+            harnais.rapport(arguments.texte("resultat", "target/perf/charge-result.json"),
+                    arguments.entier("duree", 60));
+        } finally {
+            if (context != null) {
+                context.close();
+            }
+        }
+    }
+
+    private void ajouter(String nom, String methode, int poids, Function<Random, String> chemin) {
+        cibles.add(new Cible(nom, methode, poids, chemin));
+    }
+
+    private void executer(int concurrence, int echauffementSecondes, int dureeSecondes, int debit)
+            throws InterruptedException {
+        long debutMesure = System.nanoTime() + TimeUnit.SECONDS.toNanos(echauffementSecondes);
+        long fin = debutMesure + TimeUnit.SECONDS.toNanos(dureeSecondes);
+        // with a target rate each worker owns one slot every intervalle nanoseconds
+        long intervalle = debit > 0 ? TimeUnit.SECONDS.toNanos(concurrence) / debit : 0;
+        log.info("Charge sur {} : {} worker(s), {} s d'échauffement, {} s de mesure{}", base, concurrence,
+                echauffementSecondes, dureeSecondes, debit > 0 ? ", " + debit + " requêtes/s" : "");
+        ExecutorService workers = Executors.newFixedThreadPool(concurrence);
+        for (int w = 0; w < concurrence; w++) {
+            long decalage = intervalle * w / concurrence;
+            workers.submit(() -> travailler(System.nanoTime() + decalage, intervalle, debutMesure, fin));
+        }
+        workers.shutdown();
+        workers.awaitTermination(echauffementSecondes + dureeSecondes + 60L, TimeUnit.SECONDS);
+    }
+
+    private void travailler(long premierDepart, long intervalle, long debutMesure, long fin) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        long depart = premierDepart;
+        while (depart < fin) {
+            if (intervalle > 0) {
+                long attente = depart - System.nanoTime();
+                if (attente > 0) {
+                    try {
+                        TimeUnit.NANOSECONDS.sleep(attente);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        return;
+                    }
+                }
+            } else {
+                depart = System.nanoTime();
+            }
+            Cible cible = tirer(random);
+            boolean succes;
+            try {
+                HttpRequest requete = HttpRequest.newBuilder(URI.create(base + cible.chemin.apply(random)))
+                        .timeout(Duration.ofSeconds(30))
+                        .method(cible.methode, HttpRequest.BodyPublishers.noBody())
+                        .build();
+                HttpResponse<Void> reponse = client.send(requete, HttpResponse.BodyHandlers.discarding());
+                succes = reponse.statusCode() < 400;
+            } catch (IOException e) {
+                succes = false;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            long termine = System.nanoTime();
+            if (depart >= debutMesure && termine <= fin) {
+                cible.latences.enregistrer(TimeUnit.NANOSECONDS.toMicros(termine - depart));
+                if (!succes) {
+                    cible.erreurs.incrementAndGet();
+                }
+            }
+            depart = intervalle > 0 ? depart + intervalle : termine;
+        }
+    }
+
+    private Cible tirer(Random random) {
+        int tirage = random.nextInt(poidsTotal);
+        for (Cible cible : cibles) {
+            tirage -= cible.poids;
+            if (tirage < 0) {
+                return cible;
+            }
+        }
+        return cibles.get(cibles.size() - 1);
+    }
+
+    private void rapport(String fichier, int dureeSecondes) throws IOException {
+        Map<String, Object> resultats = new LinkedHashMap<>();
+        StringBuilder tableau = new StringBuilder(String.format("%n%-45s %9s %8s %7s %9s %9s %9s %9s%n",
+                "endpoint", "requetes", "req/s", "erreurs", "p50 ms", "p95 ms", "p99 ms", "max ms"));
+        for (Cible cible : cibles) {
+            Histogramme h = cible.latences;
+            Map<String, Object> ligne = new LinkedHashMap<>();
+            ligne.put("requetes", h.total());
+            ligne.put("debit", (double) h.total() / dureeSecondes);
+            ligne.put("erreurs", cible.erreurs.get());
+            ligne.put("p50Ms", h.quantile(0.50) / 1000.0);
+            ligne.put("p95Ms", h.quantile(0.95) / 1000.0);
+            ligne.put("p99Ms", h.quantile(0.99) / 1000.0);
+            ligne.put("maxMs", h.max() / 1000.0);
+            resultats.put(cible.nom, ligne);
+            tableau.append(String.format("%-45s %9d %8.1f %7d %9.1f %9.1f %9.1f %9.1f%n", cible.nom, h.total(),
+                    (double) h.total() / dureeSecondes, cible.erreurs.get(), h.quantile(0.50) / 1000.0,
+                    h.quantile(0.95) / 1000.0, h.quantile(0.99) / 1000.0, h.max() / 1000.0));
+        }
+        log.info("{}", tableau);
+        File sortie = new File(fichier);
+        if (sortie.getParentFile() != null) {
+            sortie.getParentFile().mkdirs();
+        }
+        new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT).writeValue(sortie, resultats);
+        log.info("Résultats écrits dans {}", sortie.getAbsolutePath());
+    }
+
+    private static final class Cible {
+        private final String nom;
+        private final String methode;
+        private final int poids;
+        private final Function<Random, String> chemin;
+        private final Histogramme latences = new Histogramme();
+        private final AtomicLong erreurs = new AtomicLong();
+
+        Cible(String nom, String methode, int poids, Function<Random, String> chemin) {
+            this.nom = nom;
+            this.methode = methode;
+            this.poids = poids;
+            this.chemin = chemin;
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package tn.esprit.spring.kaddem.perf;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock-free latency histogram in microseconds with log-linear buckets : exact below 128 us, then 64 buckets per
+ * power of two (under 1.6 % error). Memory stays constant whatever the duration of the run.
+ */
+final class Histogramme {
+    private static final int LINEAIRE = 128;
+    private static final int PAR_OCTAVE = 64;
+
+    private final AtomicLongArray compteurs = new AtomicLongArray(PAR_OCTAVE * 64);
+    private final AtomicLong total = new AtomicLong();
+    private final AtomicLong max = new AtomicLong();
+
+    void enregistrer(long micros) {
+        long valeur = Math.max(0, micros);
+        compteurs.incrementAndGet(index(valeur));
+        total.incrementAndGet();
+        max.accumulateAndGet(valeur, Math::max);
+    }
+
+    long total() {
+        return total.get();
+    }
+
+    long max() {
+        return max.get();
+    }
+
+    // upper bound of the bucket holding the requested quantile
+    long quantile(double q) {
+        long rang = (long) Math.ceil(q * total.get());
+        long cumul = 0;
+        for (int i = 0; i < compteurs.length(); i++) {
+            cumul += compteurs.get(i);
+            if (cumul >= rang && cumul > 0) {
+                return Math.min(borneHaute(i), max.get());
+            }
+        }
+        return max.get();
+    }
+
+    static int index(long valeur) {
+        if (valeur < LINEAIRE) {
+            return (int) valeur;
+        }
+        int decalage = 63 - Long.numberOfLeadingZeros(valeur) - 6;
+        return (int) (decalage * PAR_OCTAVE + (valeur >>> decalage));
+    }
+
+    static long borneHaute(int index) {
+        if (index < LINEAIRE) {
+            return index;
+        }
+        int decalage = index / PAR_OCTAVE - 1;
+        long mantisse = index % PAR_OCTAVE + PAR_OCTAVE;
+        return ((mantisse + 1) << decalage) - 1;
+    }
+}
@@ -0,0 +1,50 @@
+package tn.esprit.spring.kaddem.perf;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Zipf-distributed ids in [1, n] : rank k is drawn with a probability proportional to 1 / k^exposant, and ranks
+ * are spread over the ids by a multiplicative permutation, so the heavy ids are not all at the start of the table.
+ */
+final class Zipf {
+    private final double[] cumul;
+    private final int n;
+    private final long multiplicateur;
+
+    Zipf(int n, double exposant) {
+        this.n = n;
+        this.cumul = new double[n];
+        double somme = 0;
+        for (int k = 1; k <= n; k++) {
+            somme += 1 / Math.pow(k, exposant);
+            cumul[k - 1] = somme;
+        }
+        for (int k = 0; k < n; k++) {
+            cumul[k] /= somme;
+        }
+        this.multiplicateur = premierAvec(n);
+    }
+
+    int tirer(Random random) {
+        int rang = Arrays.binarySearch(cumul, random.nextDouble());
+        if (rang < 0) {
+            rang = -rang - 1;
+        }
+        rang = Math.min(rang, n - 1);
+        return (int) ((rang * multiplicateur) % n) + 1;
+    }
+
+    // a multiplier coprime with n, so that rank -> id is a bijection
+    private static long premierAvec(int n) {
+        long candidat = 1_000_003L;
+        while (pgcd(candidat, n) != 1) {
+            candidat += 2;
+        }
+        return candidat;
+    }
+
+    private static long pgcd(long a, long b) {
+        return b == 0 ? a : pgcd(b, a % b);
+    }
+}
@@ -0,0 +1,18 @@
+package tn.esprit.spring.kaddem.controllers;
+
+import lombok.AllArgsConstructor;
+import org.springframework.web.bind.annotation.*;
+import tn.esprit.spring.kaddem.dto.CacheStatistiques;
+import tn.esprit.spring.kaddem.services.ICacheService;
+
+@RestController
+@AllArgsConstructor
+@RequestMapping("/cache")
+public class CacheRestController {
+	ICacheService cacheService;
+	// http://localhost:8089/Kaddem/cache/statistiques
+	@GetMapping("/statistiques")
+	public CacheStatistiques getStatistiques() {
+		return cacheService.retrieveStatistiques();
+	}
+}
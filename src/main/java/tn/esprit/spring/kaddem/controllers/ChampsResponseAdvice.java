@@ -0,0 +1,31 @@
+package tn.esprit.spring.kaddem.controllers;
+
+import org.springframework.core.MethodParameter;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.json.MappingJacksonValue;
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.http.server.ServletServerHttpRequest;
+import org.springframework.web.bind.annotation.RestControllerAdvice;
+import org.springframework.web.servlet.mvc.method.annotation.AbstractMappingJacksonResponseBodyAdvice;
+import tn.esprit.spring.kaddem.dto.ChampsFiltre;
+
+import java.util.Set;
+
+// ?fields=a,b on any JSON endpoint returning *Vue objects keeps only those properties
+@RestControllerAdvice
+public class ChampsResponseAdvice extends AbstractMappingJacksonResponseBodyAdvice {
+
+    @Override
+    protected void beforeBodyWriteInternal(MappingJacksonValue bodyContainer, MediaType contentType,
+                                           MethodParameter returnType, ServerHttpRequest request,
+                                           ServerHttpResponse response) {
+        if (!(request instanceof ServletServerHttpRequest)) {
+            return;
+        }
+        Set<String> champs = ChampsFiltre.parser(((ServletServerHttpRequest) request).getServletRequest().getParameter("fields"));
+        if (champs != null) {
+            bodyContainer.setFilters(ChampsFiltre.provider(champs));
+        }
+    }
+}
@@ -3,30 +3,125 @@ package tn.esprit.spring.kaddem.controllers;
 import lombok.AllArgsConstructor;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import tn.esprit.spring.kaddem.dto.ChampsFiltre;
+import tn.esprit.spring.kaddem.dto.ChiffreAffaireDetail;
+import tn.esprit.spring.kaddem.dto.ContratVue;
+import tn.esprit.spring.kaddem.dto.ImportRapport;
+import tn.esprit.spring.kaddem.dto.KeysetPage;
+import tn.esprit.spring.kaddem.entities.Etudiant;
 import tn.esprit.spring.kaddem.entities.Contrat;
+import tn.esprit.spring.kaddem.entities.Specialite;
+import tn.esprit.spring.kaddem.jobs.ExecuteurJobs;
+import tn.esprit.spring.kaddem.jobs.JobEcheancesContrats;
+import tn.esprit.spring.kaddem.monitoring.JobMetrics;
+import tn.esprit.spring.kaddem.monitoring.QueryBudget;
 import tn.esprit.spring.kaddem.services.ContratServiceImpl;
+import tn.esprit.spring.kaddem.services.FormatExport;
 import tn.esprit.spring.kaddem.services.IContratService;
+import tn.esprit.spring.kaddem.services.IExportService;
+import tn.esprit.spring.kaddem.services.IImportService;
+import tn.esprit.spring.kaddem.services.ModeAnalytique;
+import tn.esprit.spring.kaddem.services.VersionsEntites;
 
+import java.io.InputStream;
+import java.time.LocalDate;
 import java.util.Date;
 import java.util.List;
+import java.util.Set;
 
 @RestController
 @AllArgsConstructor
 @RequestMapping("/contrat")
 public class ContratRestController {
 	IContratService contratService;
+	JobMetrics jobMetrics;
+	IImportService importService;
+	VersionsEntites versionsEntites;
+	ExecuteurJobs executeurJobs;
+	IExportService exportService;
 	// http://localhost:8089/Kaddem/contrat/retrieve-all-contrats
 	@GetMapping("/retrieve-all-contrats")
-	public List<Contrat> getContrats() {
-		List<Contrat> listContrats = contratService.retrieveAllContrats();
+	public List<ContratVue> getContrats(WebRequest requete) {
+		if (requete.checkNotModified(versionsEntites.etag(Contrat.class, Etudiant.class))) {
+			return null;
+		}
+		List<ContratVue> listContrats = contratService.retrieveAllContratVues();
 		return listContrats;
 	}
+	// http://localhost:8089/Kaddem/contrat/contrats?taille=50&specialite=IA&archive=false&curseur=...&fields=idContrat,montantContrat
+	@QueryBudget(3)
+	@GetMapping("/contrats")
+	public KeysetPage<ContratVue> getContratsPage(@RequestParam(name = "curseur", required = false) String curseur,
+											   @RequestParam(name = "specialite", required = false) Specialite specialite,
+											   @RequestParam(name = "archive", required = false) Boolean archive,
+											   @RequestParam(name = "taille", defaultValue = "50") int taille) {
+		verifierCurseur(curseur);
+		return contratService.retrieveContratsPage(curseur, specialite, archive, taille);
+	}
+
+	// http://localhost:8089/Kaddem/contrat/contrats/stream?specialite=IA&archive=false
+	@GetMapping(value = "/contrats/stream", produces = MediaType.APPLICATION_NDJSON_VALUE)
+	public ResponseEntity<StreamingResponseBody> streamContrats(@RequestParam(name = "curseur", required = false) String curseur,
+																@RequestParam(name = "specialite", required = false) Specialite specialite,
+																@RequestParam(name = "archive", required = false) Boolean archive,
+																@RequestParam(name = "fields", required = false) String fields) {
+		verifierCurseur(curseur);
+		Set<String> champs = ChampsFiltre.parser(fields);
+		StreamingResponseBody body = out -> contratService.streamContrats(curseur, specialite, archive, champs, out);
+		return ResponseEntity.ok().contentType(MediaType.APPLICATION_NDJSON).body(body);
+	}
+
+	// reporting export from a JDBC cursor, resumed with apres=<last idContrat received>
+	// http://localhost:8089/Kaddem/contrat/export?format=CSV&du=2023-01-01&au=2023-12-31&specialite=IA&idDepartement=1&gzip=true
+	@GetMapping("/export")
+	public ResponseEntity<StreamingResponseBody> exporterContrats(@RequestParam(name = "format", defaultValue = "NDJSON") FormatExport format,
+																  @RequestParam(name = "apres", required = false) Integer apres,
+																  @RequestParam(name = "du", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate du,
+																  @RequestParam(name = "au", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate au,
+																  @RequestParam(name = "specialite", required = false) Specialite specialite,
+																  @RequestParam(name = "idDepartement", required = false) Integer idDepartement,
+																  @RequestParam(name = "gzip", defaultValue = "false") boolean gzip) {
+		if (!exportService.reserver()) {
+			throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Trop d'exports en cours, réessayer plus tard");
+		}
+		StreamingResponseBody body = out -> {
+			try {
+				exportService.exporterContrats(format, apres, du, au, specialite, idDepartement, gzip, out);
+			} finally {
+				exportService.liberer();
+			}
+		};
+		ResponseEntity.BodyBuilder reponse = ResponseEntity.ok().contentType(MediaType.parseMediaType(format.getMediaType()));
+		if (gzip) {
+			reponse.header(HttpHeaders.CONTENT_ENCODING, "gzip");
+		}
+		return reponse.body(body);
+	}
+
+	private void verifierCurseur(String curseur) {
+		try {
+			KeysetPage.decodeCursor(curseur);
+		} catch (IllegalArgumentException e) {
+			throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+		}
+	}
+
 	// http://localhost:8089/Kaddem/contrat/retrieve-contrat/8
 	@GetMapping("/retrieve-contrat/{contrat-id}")
-	public Contrat retrieveContrat(@PathVariable("contrat-id") Integer contratId) {
-		return contratService.retrieveContrat(contratId);
+	public ContratVue retrieveContrat(@PathVariable("contrat-id") Integer contratId, WebRequest requete) {
+		if (requete.checkNotModified(versionsEntites.etag(Contrat.class, contratId, Etudiant.class))) {
+			return null;
+		}
+		return contratService.retrieveContratVue(contratId);
 	}
 
 	// http://localhost:8089/Kaddem/econtrat/add-contrat
@@ -36,6 +131,12 @@ public class ContratRestController {
 		return contrat;
 	}
 
+	// http://localhost:8089/Kaddem/contrat/import (JSON array, NDJSON or CSV with a header line)
+	@PostMapping(value = "/import", consumes = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE, "text/csv"})
+	public ImportRapport importerContrats(@RequestHeader(HttpHeaders.CONTENT_TYPE) String contentType, InputStream donnees) {
+		return importService.importerContrats(donnees, contentType);
+	}
+
 	// http://localhost:8089/Kaddem/contrat/remove-contrat/1
 	@DeleteMapping("/remove-contrat/{contrat-id}")
 	public void removeContrat(@PathVariable("contrat-id") Integer contratId) {
@@ -54,8 +155,10 @@ public class ContratRestController {
 		return 	(contratService.affectContratToEtudiant(ce, nomE, prenomE));
 		}*/
 
+	@QueryBudget(6)
 	@PutMapping(value = "/assignContratToEtudiant/{idContrat}/{nomE}/{prenomE}")
-	public Contrat assignContratToEtudiant (Integer idContrat, String nomE, String prenomE){
+	public Contrat assignContratToEtudiant (@PathVariable("idContrat") Integer idContrat, @PathVariable("nomE") String nomE,
+											@PathVariable("prenomE") String prenomE){
 	//	Contrat c= contratService.affectContratToEtudiant()
 		return 	(contratService.affectContratToEtudiant(idContrat, nomE, prenomE));
 	}
@@ -69,11 +172,18 @@ public class ContratRestController {
 		}
 
     //Only no-arg methods may be annotated with @Scheduled
-    @Scheduled(cron="0 0 13 * * *")//(cron="0 0 13 * * ?")(fixedRate =21600)
+    @Scheduled(cron="${kaddem.echeancier.cron:0 0 13 * * *}")//(cron="0 0 13 * * ?")(fixedRate =21600)
+	public void majStatusContratPlanifie (){
+		jobMetrics.executer(JobEcheancesContrats.NOM,
+				() -> executeurJobs.executer(JobEcheancesContrats.NOM, ExecuteurJobs.cleDuJour()));
+	}
+
+	// manual run : a key of its own, so it neither waits for nor replaces the run of the day
 	@PutMapping(value = "/majStatusContrat")
 	public void majStatusContrat (){
 		//return 	(contratService.affectContratToEtudiant(ce, nomE, prenomE));
-		contratService.retrieveAndUpdateStatusContrat();
+		jobMetrics.executer(JobEcheancesContrats.NOM,
+				() -> executeurJobs.executer(JobEcheancesContrats.NOM, ExecuteurJobs.cleManuelle()));
 
 	}
 
@@ -86,6 +196,25 @@ public class ContratRestController {
 
 		return contratService.getChiffreAffaireEntreDeuxDates(startDate, endDate);
 	}
+
+	// http://localhost:8089/Kaddem/contrat/analytique/mode/SNAPSHOT
+	@PutMapping("/analytique/mode/{mode}")
+	public ModeAnalytique changerModeAnalytique(@PathVariable("mode") ModeAnalytique mode) {
+		return contratService.changerModeAnalytique(mode);
+	}
+
+	@GetMapping("/analytique/mode")
+	public ModeAnalytique getModeAnalytique() {
+		return contratService.getModeAnalytique();
+	}
+
+	// http://localhost:8089/Kaddem/contrat/chiffreAffaireParSpecialite/2022-01-01/2022-12-31
+	@QueryBudget(2)
+	@GetMapping("/chiffreAffaireParSpecialite/{startDate}/{endDate}")
+	public ChiffreAffaireDetail chiffreAffaireParSpecialite(@PathVariable(name = "startDate") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) Date startDate,
+															@PathVariable(name = "endDate") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) Date endDate) {
+		return contratService.getChiffreAffaireDetail(startDate, endDate);
+	}
 }
 
 
@@ -2,8 +2,11 @@ package tn.esprit.spring.kaddem.controllers;
 
 import lombok.AllArgsConstructor;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import tn.esprit.spring.kaddem.dto.DepartementVue;
 import tn.esprit.spring.kaddem.entities.Departement;
 import tn.esprit.spring.kaddem.services.IDepartementService;
+import tn.esprit.spring.kaddem.services.VersionsEntites;
 
 import java.util.List;
 
@@ -12,16 +15,23 @@ import java.util.List;
 @RequestMapping("/departement")
 public class DepartementRestController {
 	IDepartementService departementService;
+	VersionsEntites versionsEntites;
 	// http://localhost:8089/Kaddem/departement/retrieve-all-departements
 	@GetMapping("/retrieve-all-departements")
-	public List<Departement> getDepartements() {
-		List<Departement> listDepartements = departementService.retrieveAllDepartements();
+	public List<DepartementVue> getDepartements(WebRequest requete) {
+		if (requete.checkNotModified(versionsEntites.etag(Departement.class))) {
+			return null;
+		}
+		List<DepartementVue> listDepartements = departementService.retrieveAllDepartementVues();
 		return listDepartements;
 	}
 	// http://localhost:8089/Kaddem/departement/retrieve-departement/8
 	@GetMapping("/retrieve-departement/{departement-id}")
-	public Departement retrieveDepartement(@PathVariable("departement-id") Integer departementId) {
-		return departementService.retrieveDepartement(departementId);
+	public DepartementVue retrieveDepartement(@PathVariable("departement-id") Integer departementId, WebRequest requete) {
+		if (requete.checkNotModified(versionsEntites.etag(Departement.class, departementId))) {
+			return null;
+		}
+		return departementService.retrieveDepartementVue(departementId);
 	}
 
 	// http://localhost:8089/Kaddem/departement/add-departement
@@ -4,8 +4,20 @@ import lombok.AllArgsConstructor;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import tn.esprit.spring.kaddem.dto.EquipeVue;
+import tn.esprit.spring.kaddem.dto.EtudiantVue;
+import tn.esprit.spring.kaddem.dto.KeysetPage;
+import tn.esprit.spring.kaddem.dto.PromotionEquipe;
 import tn.esprit.spring.kaddem.entities.Equipe;
+import tn.esprit.spring.kaddem.entities.Etudiant;
+import tn.esprit.spring.kaddem.jobs.ExecuteurJobs;
+import tn.esprit.spring.kaddem.jobs.JobEvolutionEquipes;
+import tn.esprit.spring.kaddem.jobs.JobReconciliationEquipes;
+import tn.esprit.spring.kaddem.monitoring.JobMetrics;
+import tn.esprit.spring.kaddem.monitoring.QueryBudget;
 import tn.esprit.spring.kaddem.services.IEquipeService;
+import tn.esprit.spring.kaddem.services.VersionsEntites;
 
 import java.util.List;
 
@@ -14,16 +26,25 @@ import java.util.List;
 @RequestMapping("/equipe")
 public class EquipeRestController {
 	IEquipeService equipeService;
+	JobMetrics jobMetrics;
+	VersionsEntites versionsEntites;
+	ExecuteurJobs executeurJobs;
 	// http://localhost:8089/Kaddem/equipe/retrieve-all-equipes
 	@GetMapping("/retrieve-all-equipes")
-	public List<Equipe> getEquipes() {
-		List<Equipe> listEquipes = equipeService.retrieveAllEquipes();
+	public List<EquipeVue> getEquipes(WebRequest requete) {
+		if (requete.checkNotModified(versionsEntites.etag(Equipe.class))) {
+			return null;
+		}
+		List<EquipeVue> listEquipes = equipeService.retrieveAllEquipeVues();
 		return listEquipes;
 	}
 	// http://localhost:8089/Kaddem/equipe/retrieve-equipe/8
 	@GetMapping("/retrieve-equipe/{equipe-id}")
-	public Equipe retrieveEquipe(@PathVariable("equipe-id") Integer equipeId) {
-		return equipeService.retrieveEquipe(equipeId);
+	public EquipeVue retrieveEquipe(@PathVariable("equipe-id") Integer equipeId, WebRequest requete) {
+		if (requete.checkNotModified(versionsEntites.etag(Equipe.class, equipeId))) {
+			return null;
+		}
+		return equipeService.retrieveEquipeVue(equipeId);
 	}
 
 	// http://localhost:8089/Kaddem/equipe/add-equipe
@@ -46,10 +67,79 @@ public class EquipeRestController {
 		return equipe;
 	}
 
-	@Scheduled(cron="0 0 13 * * *")
+	// http://localhost:8089/Kaddem/equipe/ajouter-etudiant/1/5
+	@PutMapping("/ajouter-etudiant/{equipe-id}/{etudiant-id}")
+	public int ajouterEtudiant(@PathVariable("equipe-id") Integer equipeId, @PathVariable("etudiant-id") Integer etudiantId) {
+		return equipeService.ajouterEtudiants(equipeId, List.of(etudiantId));
+	}
+
+	// http://localhost:8089/Kaddem/equipe/retirer-etudiant/1/5
+	@DeleteMapping("/retirer-etudiant/{equipe-id}/{etudiant-id}")
+	public int retirerEtudiant(@PathVariable("equipe-id") Integer equipeId, @PathVariable("etudiant-id") Integer etudiantId) {
+		return equipeService.retirerEtudiants(equipeId, List.of(etudiantId));
+	}
+
+	// http://localhost:8089/Kaddem/equipe/ajouter-etudiants/1
+	@PutMapping("/ajouter-etudiants/{equipe-id}")
+	public int ajouterEtudiants(@PathVariable("equipe-id") Integer equipeId, @RequestBody List<Integer> etudiantIds) {
+		return equipeService.ajouterEtudiants(equipeId, etudiantIds);
+	}
+
+	// http://localhost:8089/Kaddem/equipe/retirer-etudiants/1
+	@PutMapping("/retirer-etudiants/{equipe-id}")
+	public int retirerEtudiants(@PathVariable("equipe-id") Integer equipeId, @RequestBody List<Integer> etudiantIds) {
+		return equipeService.retirerEtudiants(equipeId, etudiantIds);
+	}
+
+	// http://localhost:8089/Kaddem/equipe/etudiants/1?taille=100
+	@GetMapping("/etudiants/{equipe-id}")
+	public KeysetPage<EtudiantVue> getEtudiantsEquipe(@PathVariable("equipe-id") Integer equipeId,
+													  @RequestParam(required = false) String curseur,
+													  @RequestParam(defaultValue = "100") int taille, WebRequest requete) {
+		if (requete.checkNotModified(versionsEntites.etag(Equipe.class, equipeId, Etudiant.class))) {
+			return null;
+		}
+		return equipeService.retrieveEtudiantsEquipe(equipeId, curseur, taille);
+	}
+
+	// http://localhost:8089/Kaddem/equipe/nb-etudiants/1
+	@GetMapping("/nb-etudiants/{equipe-id}")
+	public long getNbEtudiantsEquipe(@PathVariable("equipe-id") Integer equipeId) {
+		return equipeService.nbEtudiantsEquipe(equipeId);
+	}
+
+	@Scheduled(cron="${kaddem.jobs.evolution-equipes.cron:0 0 13 * * *}")
+	public void faireEvoluerEquipesPlanifie() {
+		jobMetrics.executer(JobEvolutionEquipes.NOM,
+				() -> executeurJobs.executer(JobEvolutionEquipes.NOM, ExecuteurJobs.cleDuJour()));
+	}
+
+	// manual runs get a key of their own, the run of the day still happens
+	@QueryBudget(15)
 	@PutMapping("/faireEvoluerEquipes")
 	public void faireEvoluerEquipes() {
-		 equipeService.evoluerEquipes() ;
+		jobMetrics.executer(JobEvolutionEquipes.NOM,
+				() -> executeurJobs.executer(JobEvolutionEquipes.NOM, ExecuteurJobs.cleManuelle()));
+	}
+
+	// repaired counters are reported as the job's rows (kaddem.job.rows)
+	@Scheduled(cron="${kaddem.jobs.reconciliation-equipes.cron:0 30 3 * * *}")
+	public void reconcilierAgregatsPlanifie() {
+		jobMetrics.executer(JobReconciliationEquipes.NOM,
+				() -> executeurJobs.executer(JobReconciliationEquipes.NOM, ExecuteurJobs.cleDuJour()));
+	}
+
+	@PutMapping("/reconcilierAgregats")
+	public void reconcilierAgregats() {
+		jobMetrics.executer(JobReconciliationEquipes.NOM,
+				() -> executeurJobs.executer(JobReconciliationEquipes.NOM, ExecuteurJobs.cleManuelle()));
+	}
+
+	// http://localhost:8089/Kaddem/equipe/simulerEvolutionEquipes
+	@QueryBudget(3)
+	@GetMapping("/simulerEvolutionEquipes")
+	public List<PromotionEquipe> simulerEvolutionEquipes() {
+		return equipeService.evoluerEquipes(true);
 	}
 }
 
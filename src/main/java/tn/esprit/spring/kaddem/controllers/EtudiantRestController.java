@@ -2,10 +2,25 @@ package tn.esprit.spring.kaddem.controllers;
 
 import lombok.AllArgsConstructor;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import tn.esprit.spring.kaddem.dto.EtudiantVue;
+import tn.esprit.spring.kaddem.dto.ImportRapport;
+import tn.esprit.spring.kaddem.dto.OffsetPage;
 import tn.esprit.spring.kaddem.entities.Etudiant;
+import tn.esprit.spring.kaddem.services.FormatExport;
 import tn.esprit.spring.kaddem.services.IEtudiantService;
+import tn.esprit.spring.kaddem.services.IExportService;
+import tn.esprit.spring.kaddem.services.IImportService;
+import tn.esprit.spring.kaddem.services.VersionsEntites;
 
+import java.io.InputStream;
 import java.util.List;
 
 @RestController
@@ -14,16 +29,34 @@ import java.util.List;
 public class EtudiantRestController {
 	@Autowired
 	IEtudiantService etudiantService;
+	@Autowired
+	IImportService importService;
+	@Autowired
+	VersionsEntites versionsEntites;
+	@Autowired
+	IExportService exportService;
 	// http://localhost:8089/Kaddem/etudiant/retrieve-all-etudiants
 	@GetMapping("/retrieve-all-etudiants")
-	public List<Etudiant> getEtudiants() {
-		List<Etudiant> listEtudiants = etudiantService.retrieveAllEtudiants();
+	public List<EtudiantVue> getEtudiants(WebRequest requete) {
+		if (requete.checkNotModified(versionsEntites.etag(Etudiant.class))) {
+			return null;
+		}
+		List<EtudiantVue> listEtudiants = etudiantService.retrieveAllEtudiantVues();
 		return listEtudiants;
 	}
 	// http://localhost:8089/Kaddem/etudiant/retrieve-etudiant/8
 	@GetMapping("/retrieve-etudiant/{etudiant-id}")
-	public Etudiant retrieveEtudiant(@PathVariable("etudiant-id") Integer etudiantId) {
-		return etudiantService.retrieveEtudiant(etudiantId);
+	public EtudiantVue retrieveEtudiant(@PathVariable("etudiant-id") Integer etudiantId, WebRequest requete) {
+		if (requete.checkNotModified(versionsEntites.etag(Etudiant.class, etudiantId))) {
+			return null;
+		}
+		return etudiantService.retrieveEtudiantVue(etudiantId);
+	}
+
+	// http://localhost:8089/Kaddem/etudiant/rechercher?q=benali%20moh&k=10 (accents ignored, prefixes and typos accepted)
+	@GetMapping("/rechercher")
+	public List<EtudiantVue> rechercherEtudiants(@RequestParam("q") String texte, @RequestParam(defaultValue = "10") int k) {
+		return etudiantService.rechercherEtudiants(texte, k);
 	}
 
 	// http://localhost:8089/Kaddem/etudiant/add-etudiant
@@ -33,6 +66,36 @@ public class EtudiantRestController {
 		return etudiant;
 	}
 
+	// http://localhost:8089/Kaddem/etudiant/import (JSON array, NDJSON or CSV with a header line)
+	@PostMapping(value = "/import", consumes = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE, "text/csv"})
+	public ImportRapport importerEtudiants(@RequestHeader(HttpHeaders.CONTENT_TYPE) String contentType, InputStream donnees) {
+		return importService.importerEtudiants(donnees, contentType);
+	}
+
+	// reporting export from a JDBC cursor, resumed with apres=<last idEtudiant received>
+	// http://localhost:8089/Kaddem/etudiant/export?format=CSV&idDepartement=1&gzip=true
+	@GetMapping("/export")
+	public ResponseEntity<StreamingResponseBody> exporterEtudiants(@RequestParam(name = "format", defaultValue = "NDJSON") FormatExport format,
+																   @RequestParam(name = "apres", required = false) Integer apres,
+																   @RequestParam(name = "idDepartement", required = false) Integer idDepartement,
+																   @RequestParam(name = "gzip", defaultValue = "false") boolean gzip) {
+		if (!exportService.reserver()) {
+			throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Trop d'exports en cours, réessayer plus tard");
+		}
+		StreamingResponseBody body = out -> {
+			try {
+				exportService.exporterEtudiants(format, apres, idDepartement, gzip, out);
+			} finally {
+				exportService.liberer();
+			}
+		};
+		ResponseEntity.BodyBuilder reponse = ResponseEntity.ok().contentType(MediaType.parseMediaType(format.getMediaType()));
+		if (gzip) {
+			reponse.header(HttpHeaders.CONTENT_ENCODING, "gzip");
+		}
+		return reponse.body(body);
+	}
+
 	// http://localhost:8089/Kaddem/etudiant/remove-etudiant/1
 	@DeleteMapping("/remove-etudiant/{etudiant-id}")
 	public void removeEtudiant(@PathVariable("etudiant-id") Integer etudiantId) {
@@ -61,10 +124,19 @@ public class EtudiantRestController {
         return etudiant;
     }
 
+	// http://localhost:8089/Kaddem/etudiant/getEtudiantsByDepartement/1?page=0&taille=50
 	@GetMapping(value = "/getEtudiantsByDepartement/{idDepartement}")
-	public List<Etudiant> getEtudiantsParDepartement(@PathVariable("idDepartement") Integer idDepartement) {
+	public OffsetPage<EtudiantVue> getEtudiantsParDepartement(@PathVariable("idDepartement") Integer idDepartement,
+														 @RequestParam(defaultValue = "0") int page,
+														 @RequestParam(defaultValue = "50") int taille) {
+
+		return etudiantService.getEtudiantsByDepartement(idDepartement, page, taille);
+	}
 
-		return etudiantService.getEtudiantsByDepartement(idDepartement);
+	// http://localhost:8089/Kaddem/etudiant/getNbEtudiantsByDepartement/1
+	@GetMapping(value = "/getNbEtudiantsByDepartement/{idDepartement}")
+	public long getNbEtudiantsParDepartement(@PathVariable("idDepartement") Integer idDepartement) {
+		return etudiantService.getNbEtudiantsByDepartement(idDepartement);
 	}
 
 }
@@ -0,0 +1,16 @@
+package tn.esprit.spring.kaddem.controllers;
+
+import org.springframework.boot.autoconfigure.jackson.Jackson2ObjectMapperBuilderCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import tn.esprit.spring.kaddem.dto.ChampsFiltre;
+
+@Configuration
+public class JacksonConfig {
+
+    // the *Vue classes carry @JsonFilter : without a fields parameter every property is written
+    @Bean
+    public Jackson2ObjectMapperBuilderCustomizer champsParDefaut() {
+        return builder -> builder.filters(ChampsFiltre.provider(null));
+    }
+}
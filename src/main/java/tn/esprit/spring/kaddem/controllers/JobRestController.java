@@ -0,0 +1,25 @@
+package tn.esprit.spring.kaddem.controllers;
+
+import lombok.AllArgsConstructor;
+import org.springframework.web.bind.annotation.*;
+import tn.esprit.spring.kaddem.dto.JobsEtat;
+import tn.esprit.spring.kaddem.jobs.ExecuteurJobs;
+
+@RestController
+@AllArgsConstructor
+@RequestMapping("/jobs")
+public class JobRestController {
+	ExecuteurJobs executeurJobs;
+	// http://localhost:8089/Kaddem/jobs/etat
+	@GetMapping("/etat")
+	public JobsEtat getEtat(@RequestParam(name = "limite", defaultValue = "20") int limite) {
+		return executeurJobs.etat(null, limite);
+	}
+
+	// http://localhost:8089/Kaddem/jobs/etat/faireEvoluerEquipes
+	@GetMapping("/etat/{nomJob}")
+	public JobsEtat getEtatJob(@PathVariable("nomJob") String nomJob,
+							   @RequestParam(name = "limite", defaultValue = "20") int limite) {
+		return executeurJobs.etat(nomJob, limite);
+	}
+}
@@ -3,12 +3,14 @@ package tn.esprit.spring.kaddem.controllers;
 import lombok.AllArgsConstructor;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.web.bind.annotation.*;
-import tn.esprit.spring.kaddem.entities.Departement;
+import org.springframework.web.context.request.WebRequest;
+import tn.esprit.spring.kaddem.dto.DepartementVue;
+import tn.esprit.spring.kaddem.dto.UniversiteVue;
 import tn.esprit.spring.kaddem.entities.Universite;
 import tn.esprit.spring.kaddem.services.IUniversiteService;
+import tn.esprit.spring.kaddem.services.VersionsEntites;
 
 import java.util.List;
-import java.util.Set;
 
 @RestController
 @AllArgsConstructor
@@ -16,16 +18,24 @@ import java.util.Set;
 public class UniversiteRestController {
 	@Autowired
 	IUniversiteService universiteService;
+	@Autowired
+	VersionsEntites versionsEntites;
 	// http://localhost:8089/Kaddem/universite/retrieve-all-universites
 	@GetMapping("/retrieve-all-universites")
-	public List<Universite> getUniversites() {
-		List<Universite> listUniversites = universiteService.retrieveAllUniversites();
+	public List<UniversiteVue> getUniversites(WebRequest requete) {
+		if (requete.checkNotModified(versionsEntites.etag(Universite.class))) {
+			return null;
+		}
+		List<UniversiteVue> listUniversites = universiteService.retrieveAllUniversiteVues();
 		return listUniversites;
 	}
 	// http://localhost:8089/Kaddem/universite/retrieve-universite/8
 	@GetMapping("/retrieve-universite/{universite-id}")
-	public Universite retrieveUniversite(@PathVariable("universite-id") Integer universiteId) {
-		return universiteService.retrieveUniversite(universiteId);
+	public UniversiteVue retrieveUniversite(@PathVariable("universite-id") Integer universiteId, WebRequest requete) {
+		if (requete.checkNotModified(versionsEntites.etag(Universite.class, universiteId))) {
+			return null;
+		}
+		return universiteService.retrieveUniversiteVue(universiteId);
 	}
 
 	// http://localhost:8089/Kaddem/universite/add-universite
@@ -55,7 +65,7 @@ public class UniversiteRestController {
 	}
 
 	@GetMapping(value = "/listerDepartementsUniversite/{idUniversite}")
-	public Set<Departement> listerDepartementsUniversite(@PathVariable("idUniversite") Integer idUniversite) {
+	public List<DepartementVue> listerDepartementsUniversite(@PathVariable("idUniversite") Integer idUniversite) {
 
 		return universiteService.retrieveDepartementsByUniversite(idUniversite);
 	}
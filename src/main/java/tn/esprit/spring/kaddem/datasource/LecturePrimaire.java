@@ -0,0 +1,23 @@
+package tn.esprit.spring.kaddem.datasource;
+
+// asked for the current request by services.VersionsEntites when it tags data written less than a replica lag ago :
+// ReadWriteRoutingDataSource then sends the request's read-only transactions to the primary, so a fresh tag never
+// goes out with a replica's stale body. Cleared by LecturePrimaireFilter at the end of the request.
+public final class LecturePrimaire {
+    private static final ThreadLocal<Boolean> DEMANDEE = new ThreadLocal<>();
+
+    private LecturePrimaire() {
+    }
+
+    public static void demander() {
+        DEMANDEE.set(Boolean.TRUE);
+    }
+
+    public static boolean isDemandee() {
+        return DEMANDEE.get() != null;
+    }
+
+    public static void liberer() {
+        DEMANDEE.remove();
+    }
+}
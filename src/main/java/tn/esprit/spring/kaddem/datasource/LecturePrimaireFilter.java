@@ -0,0 +1,26 @@
+package tn.esprit.spring.kaddem.datasource;
+
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+
+// a request thread never keeps the LecturePrimaire of the previous request it served
+@Component
+public class LecturePrimaireFilter extends OncePerRequestFilter {
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        LecturePrimaire.liberer();
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            LecturePrimaire.liberer();
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package tn.esprit.spring.kaddem.datasource;
+
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Sends read-only transactions to the replicas (round robin over the ones ReplicaLagMonitor considers usable)
+ * and everything else to the primary, as well as the reads of a request that LecturePrimaire sends there.
+ * Only meaningful behind a LazyConnectionDataSourceProxy : the read-only flag is set after the transaction
+ * manager asked for its connection.
+ */
+public class ReadWriteRoutingDataSource extends AbstractRoutingDataSource {
+    static final String PRIMAIRE = "primaire";
+
+    private final List<Replica> replicas;
+    private final AtomicInteger suivante = new AtomicInteger();
+
+    public ReadWriteRoutingDataSource(DataSource primaire, List<Replica> replicas) {
+        this.replicas = replicas;
+        Map<Object, Object> cibles = new HashMap<>();
+        cibles.put(PRIMAIRE, primaire);
+        replicas.forEach(r -> cibles.put(r.getNom(), r.getDataSource()));
+        setTargetDataSources(cibles);
+        setDefaultTargetDataSource(primaire);
+        afterPropertiesSet();
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        if (!TransactionSynchronizationManager.isCurrentTransactionReadOnly() || LecturePrimaire.isDemandee()) {
+            return PRIMAIRE;
+        }
+        int nb = replicas.size();
+        int depart = Math.floorMod(suivante.getAndIncrement(), Math.max(nb, 1));
+        for (int i = 0; i < nb; i++) {
+            Replica replica = replicas.get((depart + i) % nb);
+            if (replica.isDisponible()) {
+                return replica.getNom();
+            }
+        }
+        // every replica lags or is down : reads fall back to the primary
+        return PRIMAIRE;
+    }
+}
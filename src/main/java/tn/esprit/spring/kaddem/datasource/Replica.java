@@ -0,0 +1,24 @@
+package tn.esprit.spring.kaddem.datasource;
+
+import lombok.Getter;
+
+import javax.sql.DataSource;
+
+// one replica pool and the last verdict of ReplicaLagMonitor on it
+@Getter
+public class Replica {
+    private final String nom;
+    private final DataSource dataSource;
+    private volatile boolean disponible = true;
+    private volatile long retardSecondes;
+
+    public Replica(String nom, DataSource dataSource) {
+        this.nom = nom;
+        this.dataSource = dataSource;
+    }
+
+    void etat(boolean disponible, long retardSecondes) {
+        this.disponible = disponible;
+        this.retardSecondes = retardSecondes;
+    }
+}
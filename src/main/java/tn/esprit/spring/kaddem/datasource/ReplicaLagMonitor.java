@@ -0,0 +1,62 @@
+package tn.esprit.spring.kaddem.datasource;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+
+/**
+ * Reads Seconds_Behind_Master on each replica and takes out of the rotation the ones that are unreachable,
+ * no longer replicating, or lagging more than kaddem.datasource.routing.retard-max-secondes.
+ */
+@Slf4j
+public class ReplicaLagMonitor {
+    private final List<Replica> replicas;
+    private final RoutingDataSourceProperties properties;
+
+    public ReplicaLagMonitor(List<Replica> replicas, RoutingDataSourceProperties properties) {
+        this.replicas = replicas;
+        this.properties = properties;
+    }
+
+    @Scheduled(fixedDelayString = "${kaddem.datasource.routing.intervalle-verification-ms:5000}")
+    public void verifier() {
+        for (Replica replica : replicas) {
+            long retard;
+            try {
+                retard = retard(replica);
+            } catch (SQLException e) {
+                log.warn("Replica {} injoignable : {}", replica.getNom(), e.getMessage());
+                retard = -1;
+            }
+            boolean disponible = retard >= 0 && retard <= properties.getRetardMaxSecondes();
+            if (disponible != replica.isDisponible()) {
+                log.warn("Replica {} {} (retard {} s)", replica.getNom(), disponible ? "réintégrée" : "écartée", retard);
+            }
+            replica.etat(disponible, retard);
+        }
+    }
+
+    // -1 when replication is stopped
+    private long retard(Replica replica) throws SQLException {
+        try (Connection connection = replica.getDataSource().getConnection();
+             Statement statement = connection.createStatement()) {
+            String requete = properties.getRequeteRetard();
+            if (requete == null || requete.isBlank()) {
+                return connection.isValid(1) ? 0 : -1;
+            }
+            try (ResultSet rs = statement.executeQuery(requete)) {
+                if (!rs.next()) {
+                    // not configured as a replica : nothing to lag behind
+                    return 0;
+                }
+                long secondes = rs.getLong("Seconds_Behind_Master");
+                return rs.wasNull() ? -1 : secondes;
+            }
+        }
+    }
+}
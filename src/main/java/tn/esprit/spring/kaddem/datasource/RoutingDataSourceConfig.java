@@ -0,0 +1,83 @@
+package tn.esprit.spring.kaddem.datasource;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.metrics.micrometer.MicrometerMetricsTrackerFactory;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.core.env.Environment;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Replaces the single spring.datasource pool when kaddem.datasource.routing.enabled=true : the primary is
+ * still configured by spring.datasource.*, the replicas by kaddem.datasource.routing.replicas[n].*.
+ * The pools are built here rather than declared as beans, so that only the routing datasource gets wrapped
+ * by the SQL listener ; they still publish their hikaricp.* metrics, and the primary still gets the
+ * spring.datasource.hikari.* settings.
+ * Requires spring.jpa.open-in-view=false : a request-scoped EntityManager keeps the connection of its first
+ * transaction, so a write after a read-only transaction in the same request would go to the replica.
+ */
+@Configuration
+@ConditionalOnProperty(name = "kaddem.datasource.routing.enabled", havingValue = "true")
+@EnableConfigurationProperties(RoutingDataSourceProperties.class)
+public class RoutingDataSourceConfig implements DisposableBean {
+    private final List<HikariDataSource> pools = new ArrayList<>();
+    private final List<Replica> replicas = new ArrayList<>();
+
+    public RoutingDataSourceConfig(@Value("${spring.jpa.open-in-view:true}") boolean openInView) {
+        if (openInView) {
+            throw new IllegalStateException("kaddem.datasource.routing.enabled=true requiert spring.jpa.open-in-view=false");
+        }
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(DataSourceProperties primaireProperties, RoutingDataSourceProperties properties,
+                                 MeterRegistry registry, Environment environment) {
+        HikariDataSource primaire = primaireProperties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        // what @ConfigurationProperties("spring.datasource.hikari") does on the auto-configured pool
+        Binder.get(environment).bind("spring.datasource.hikari", Bindable.ofInstance(primaire));
+        primaire.setPoolName("primaire");
+        enregistrer(primaire, registry);
+        for (int i = 0; i < properties.getReplicas().size(); i++) {
+            RoutingDataSourceProperties.ReplicaProperties config = properties.getReplicas().get(i);
+            HikariDataSource pool = new HikariDataSource();
+            pool.setPoolName("replica-" + i);
+            pool.setJdbcUrl(config.getUrl());
+            pool.setUsername(config.getUsername());
+            pool.setPassword(config.getPassword());
+            pool.setMaximumPoolSize(config.getMaximumPoolSize());
+            pool.setReadOnly(true);
+            enregistrer(pool, registry);
+            replicas.add(new Replica(pool.getPoolName(), pool));
+        }
+        return new LazyConnectionDataSourceProxy(new ReadWriteRoutingDataSource(primaire, replicas));
+    }
+
+    @Bean
+    public ReplicaLagMonitor replicaLagMonitor(RoutingDataSourceProperties properties) {
+        return new ReplicaLagMonitor(replicas, properties);
+    }
+
+    private void enregistrer(HikariDataSource pool, MeterRegistry registry) {
+        pool.setMetricsTrackerFactory(new MicrometerMetricsTrackerFactory(registry));
+        pools.add(pool);
+    }
+
+    @Override
+    public void destroy() {
+        pools.forEach(HikariDataSource::close);
+    }
+}
@@ -0,0 +1,30 @@
+package tn.esprit.spring.kaddem.datasource;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "kaddem.datasource.routing")
+public class RoutingDataSourceProperties {
+    private boolean enabled;
+    private List<ReplicaProperties> replicas = new ArrayList<>();
+    // replicas further behind the primary than this stop receiving reads until they catch up
+    private long retardMaxSecondes = 5;
+    // empty : the replica is only pinged (e.g. a local embedded database standing in for a replica)
+    private String requeteRetard = "SHOW SLAVE STATUS";
+    private long intervalleVerificationMs = 5000;
+
+    @Getter
+    @Setter
+    public static class ReplicaProperties {
+        private String url;
+        private String username;
+        private String password;
+        private int maximumPoolSize = 10;
+    }
+}
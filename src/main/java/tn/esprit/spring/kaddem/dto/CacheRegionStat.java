@@ -0,0 +1,19 @@
+package tn.esprit.spring.kaddem.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+@Getter
+@AllArgsConstructor
+public class CacheRegionStat {
+    private String region;
+    private long hits;
+    private long misses;
+    private long puts;
+    private long elements;
+
+    public double getHitRatio() {
+        long requetes = hits + misses;
+        return requetes == 0 ? 0 : (double) hits / requetes;
+    }
+}
@@ -0,0 +1,16 @@
+package tn.esprit.spring.kaddem.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.List;
+
+@Getter
+@AllArgsConstructor
+public class CacheStatistiques {
+    private long secondLevelHits;
+    private long secondLevelMisses;
+    private long queryCacheHits;
+    private long queryCacheMisses;
+    private List<CacheRegionStat> regions;
+}
@@ -0,0 +1,66 @@
+package tn.esprit.spring.kaddem.dto;
+
+import com.fasterxml.jackson.annotation.JsonFilter;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonStreamContext;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.ser.FilterProvider;
+import com.fasterxml.jackson.databind.ser.PropertyWriter;
+import com.fasterxml.jackson.databind.ser.impl.SimpleBeanPropertyFilter;
+import com.fasterxml.jackson.databind.ser.impl.SimpleFilterProvider;
+
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Sparse field sets (?fields=idContrat,montantContrat) for the *Vue response classes, which carry
+ * @JsonFilter(ChampsFiltre.ID). Only the top-level view is trimmed : a view nested in a selected field
+ * (the student of a contract) is written whole. Unknown names are ignored.
+ */
+public class ChampsFiltre extends SimpleBeanPropertyFilter {
+    public static final String ID = "champs";
+
+    private final Set<String> champs;
+
+    private ChampsFiltre(Set<String> champs) {
+        this.champs = champs;
+    }
+
+    // null or empty : every field
+    public static FilterProvider provider(Set<String> champs) {
+        return new SimpleFilterProvider().addFilter(ID, champs == null || champs.isEmpty()
+                ? SimpleBeanPropertyFilter.serializeAll() : new ChampsFiltre(champs));
+    }
+
+    public static Set<String> parser(String fields) {
+        if (fields == null || fields.isBlank()) {
+            return null;
+        }
+        return Arrays.stream(fields.split(","))
+                .map(String::trim)
+                .filter(champ -> !champ.isEmpty())
+                .collect(Collectors.toCollection(LinkedHashSet::new));
+    }
+
+    @Override
+    public void serializeAsField(Object pojo, JsonGenerator gen, SerializerProvider provider, PropertyWriter writer)
+            throws Exception {
+        if (champs.contains(writer.getName()) || imbrique(gen)) {
+            writer.serializeAsField(pojo, gen, provider);
+        } else if (!gen.canOmitFields()) {
+            writer.serializeAsOmittedField(pojo, gen, provider);
+        }
+    }
+
+    private static boolean imbrique(JsonGenerator gen) {
+        for (JsonStreamContext contexte = gen.getOutputContext().getParent(); contexte != null; contexte = contexte.getParent()) {
+            Object valeur = contexte.getCurrentValue();
+            if (valeur != null && valeur.getClass().isAnnotationPresent(JsonFilter.class)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,13 @@
+package tn.esprit.spring.kaddem.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.List;
+
+@Getter
+@AllArgsConstructor
+public class ChiffreAffaireDetail {
+    private float total;
+    private List<ChiffreAffaireSpecialite> parSpecialite;
+}
@@ -0,0 +1,14 @@
+package tn.esprit.spring.kaddem.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import tn.esprit.spring.kaddem.entities.Specialite;
+
+@Getter
+@AllArgsConstructor
+public class ChiffreAffaireSpecialite {
+    private Specialite specialite;
+    private long nbContrats;
+    private long montantTotal;
+    private float chiffreAffaire;
+}
@@ -0,0 +1,20 @@
+package tn.esprit.spring.kaddem.dto;
+
+import tn.esprit.spring.kaddem.entities.Specialite;
+
+import java.util.Date;
+
+// the columns kept by ContratSnapshot, one row per contract of ContratRepository.streamColonnes
+public interface ContratColonnes {
+    Integer getIdContrat();
+
+    Date getDateDebutContrat();
+
+    Date getDateFinContrat();
+
+    Specialite getSpecialite();
+
+    Boolean getArchive();
+
+    Integer getMontantContrat();
+}
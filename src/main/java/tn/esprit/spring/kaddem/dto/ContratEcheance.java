@@ -0,0 +1,10 @@
+package tn.esprit.spring.kaddem.dto;
+
+import java.util.Date;
+
+// one row per due non-archived contract of ContratRepository.findEcheances
+public interface ContratEcheance {
+    Integer getIdContrat();
+
+    Date getDateFinContrat();
+}
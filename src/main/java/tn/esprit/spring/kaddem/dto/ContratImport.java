@@ -0,0 +1,21 @@
+package tn.esprit.spring.kaddem.dto;
+
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import tn.esprit.spring.kaddem.entities.Specialite;
+
+import java.time.LocalDate;
+
+// one row of /contrat/import, as JSON object, NDJSON line or CSV record with these column names
+@Getter
+@Setter
+@NoArgsConstructor
+public class ContratImport {
+    private LocalDate dateDebutContrat;
+    private LocalDate dateFinContrat;
+    private Specialite specialite;
+    private Boolean archive;
+    private Integer montantContrat;
+    private Integer idEtudiant;
+}
@@ -0,0 +1,12 @@
+package tn.esprit.spring.kaddem.dto;
+
+import tn.esprit.spring.kaddem.entities.Specialite;
+
+// one row per specialite of the GROUP BY in ContratRepository.statistiquesParSpecialite
+public interface ContratSpecialiteStat {
+    Specialite getSpecialite();
+
+    Long getNbContrats();
+
+    Long getMontantTotal();
+}
@@ -0,0 +1,32 @@
+package tn.esprit.spring.kaddem.dto;
+
+import com.fasterxml.jackson.annotation.JsonFilter;
+import lombok.Getter;
+import tn.esprit.spring.kaddem.entities.Option;
+import tn.esprit.spring.kaddem.entities.Specialite;
+
+import java.util.Date;
+
+// built by the JPQL constructor expressions of ContratRepository, the student columns come from a LEFT JOIN
+@Getter
+@JsonFilter(ChampsFiltre.ID)
+public class ContratVue {
+    private Integer idContrat;
+    private Date dateDebutContrat;
+    private Date dateFinContrat;
+    private Specialite specialite;
+    private Boolean archive;
+    private Integer montantContrat;
+    private EtudiantVue etudiant;
+
+    public ContratVue(Integer idContrat, Date dateDebutContrat, Date dateFinContrat, Specialite specialite,
+                      Boolean archive, Integer montantContrat, Integer idEtudiant, String nomE, String prenomE, Option op) {
+        this.idContrat = idContrat;
+        this.dateDebutContrat = dateDebutContrat;
+        this.dateFinContrat = dateFinContrat;
+        this.specialite = specialite;
+        this.archive = archive;
+        this.montantContrat = montantContrat;
+        this.etudiant = idEtudiant == null ? null : new EtudiantVue(idEtudiant, nomE, prenomE, op);
+    }
+}
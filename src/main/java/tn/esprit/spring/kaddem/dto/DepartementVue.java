@@ -0,0 +1,18 @@
+package tn.esprit.spring.kaddem.dto;
+
+import com.fasterxml.jackson.annotation.JsonFilter;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import tn.esprit.spring.kaddem.entities.Departement;
+
+@Getter
+@AllArgsConstructor
+@JsonFilter(ChampsFiltre.ID)
+public class DepartementVue {
+    private Integer idDepart;
+    private String nomDepart;
+
+    public static DepartementVue de(Departement d) {
+        return new DepartementVue(d.getIdDepart(), d.getNomDepart());
+    }
+}
@@ -0,0 +1,12 @@
+package tn.esprit.spring.kaddem.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+@Getter
+@AllArgsConstructor
+public class DetailEquipeVue {
+    private Integer idDetailEquipe;
+    private Integer salle;
+    private String thematique;
+}
@@ -0,0 +1,12 @@
+package tn.esprit.spring.kaddem.dto;
+
+import tn.esprit.spring.kaddem.entities.Niveau;
+
+// one row per team of EquipeRepository.findEquipesAPromouvoir
+public interface EquipeEvolutionStat {
+    Integer getIdEquipe();
+
+    Niveau getNiveau();
+
+    Integer getNbEtudiants();
+}
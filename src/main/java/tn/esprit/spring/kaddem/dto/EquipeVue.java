@@ -0,0 +1,32 @@
+package tn.esprit.spring.kaddem.dto;
+
+import com.fasterxml.jackson.annotation.JsonFilter;
+import lombok.Getter;
+import tn.esprit.spring.kaddem.entities.DetailEquipe;
+import tn.esprit.spring.kaddem.entities.Equipe;
+import tn.esprit.spring.kaddem.entities.Niveau;
+
+// the detail columns come from a LEFT JOIN, the DetailEquipe -> Equipe back reference is not followed
+@Getter
+@JsonFilter(ChampsFiltre.ID)
+public class EquipeVue {
+    private Integer idEquipe;
+    private String nomEquipe;
+    private Niveau niveau;
+    private DetailEquipeVue detailEquipe;
+
+    public EquipeVue(Integer idEquipe, String nomEquipe, Niveau niveau, Integer idDetailEquipe, Integer salle,
+                     String thematique) {
+        this.idEquipe = idEquipe;
+        this.nomEquipe = nomEquipe;
+        this.niveau = niveau;
+        this.detailEquipe = idDetailEquipe == null ? null : new DetailEquipeVue(idDetailEquipe, salle, thematique);
+    }
+
+    public static EquipeVue de(Equipe e) {
+        DetailEquipe d = e.getDetailEquipe();
+        return d == null ? new EquipeVue(e.getIdEquipe(), e.getNomEquipe(), e.getNiveau(), null, null, null)
+                : new EquipeVue(e.getIdEquipe(), e.getNomEquipe(), e.getNiveau(), d.getIdDetailEquipe(), d.getSalle(),
+                d.getThematique());
+    }
+}
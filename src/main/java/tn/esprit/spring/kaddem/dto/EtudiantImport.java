@@ -0,0 +1,17 @@
+package tn.esprit.spring.kaddem.dto;
+
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import tn.esprit.spring.kaddem.entities.Option;
+
+// one row of /etudiant/import, as JSON object, NDJSON line or CSV record with these column names
+@Getter
+@Setter
+@NoArgsConstructor
+public class EtudiantImport {
+    private String nomE;
+    private String prenomE;
+    private Option op;
+    private Integer idDepartement;
+}
@@ -0,0 +1,16 @@
+package tn.esprit.spring.kaddem.dto;
+
+import com.fasterxml.jackson.annotation.JsonFilter;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import tn.esprit.spring.kaddem.entities.Option;
+
+@Getter
+@AllArgsConstructor
+@JsonFilter(ChampsFiltre.ID)
+public class EtudiantVue {
+    private Integer idEtudiant;
+    private String nomE;
+    private String prenomE;
+    private Option op;
+}
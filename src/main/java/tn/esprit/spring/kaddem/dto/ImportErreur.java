@@ -0,0 +1,12 @@
+package tn.esprit.spring.kaddem.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+@Getter
+@AllArgsConstructor
+public class ImportErreur {
+    // 1-based record number in the submitted document (CSV header excluded)
+    private long ligne;
+    private String message;
+}
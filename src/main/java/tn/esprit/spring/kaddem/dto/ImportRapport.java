@@ -0,0 +1,35 @@
+package tn.esprit.spring.kaddem.dto;
+
+import lombok.Getter;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Getter
+public class ImportRapport {
+    private long lignesLues;
+    private long lignesInserees;
+    private long nbErreurs;
+    // only the first maxErreurs errors are kept, nbErreurs has the full count
+    private final List<ImportErreur> erreurs = new ArrayList<>();
+    private final int maxErreurs;
+
+    public ImportRapport(int maxErreurs) {
+        this.maxErreurs = maxErreurs;
+    }
+
+    public void ligneLue() {
+        lignesLues++;
+    }
+
+    public void lignesInserees(int n) {
+        lignesInserees += n;
+    }
+
+    public void erreur(long ligne, String message) {
+        nbErreurs++;
+        if (erreurs.size() < maxErreurs) {
+            erreurs.add(new ImportErreur(ligne, message));
+        }
+    }
+}
@@ -0,0 +1,23 @@
+package tn.esprit.spring.kaddem.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.Date;
+
+@Getter
+@AllArgsConstructor
+public class JobProgression {
+    private Long idExecution;
+    private String nomJob;
+    private String cleExecution;
+    private String statut;
+    private Date debut;
+    private Date fin;
+    private long lignes;
+    private int nbPartitions;
+    private int partitionsTerminees;
+    private int partitionsEnCours;
+    // share of the id range already checkpointed, between 0 and 1
+    private double progression;
+}
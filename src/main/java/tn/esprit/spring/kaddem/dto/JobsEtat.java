@@ -0,0 +1,16 @@
+package tn.esprit.spring.kaddem.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.List;
+
+@Getter
+@AllArgsConstructor
+public class JobsEtat {
+    private int workersActifs;
+    private int tachesEnAttente;
+    private int connexionsBatchUtilisees;
+    private int requetesInteractivesActives;
+    private List<JobProgression> executions;
+}
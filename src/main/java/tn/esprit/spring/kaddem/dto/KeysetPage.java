@@ -0,0 +1,36 @@
+package tn.esprit.spring.kaddem.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.List;
+
+/**
+ * One page of a keyset (seek) listing. The cursor is an opaque token carrying the last id
+ * returned; pass it back as-is to fetch the next page. nextCursor is null on the last page.
+ */
+@Getter
+@AllArgsConstructor
+public class KeysetPage<T> {
+    private List<T> content;
+    private String nextCursor;
+    private int size;
+
+    public static String encodeCursor(Integer lastId) {
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString(lastId.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static Integer decodeCursor(String cursor) {
+        if (cursor == null || cursor.isEmpty()) {
+            return 0;
+        }
+        try {
+            return Integer.valueOf(new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Curseur invalide : " + cursor, e);
+        }
+    }
+}
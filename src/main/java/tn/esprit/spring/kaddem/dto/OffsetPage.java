@@ -0,0 +1,25 @@
+package tn.esprit.spring.kaddem.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import org.springframework.data.domain.Slice;
+
+import java.util.List;
+
+/**
+ * One page of an offset listing, read without a COUNT. nextPage is the number to ask for next, null on the
+ * last page. Serialized as is, unlike a Spring Data Slice whose JSON exposes its Pageable and Sort.
+ */
+@Getter
+@AllArgsConstructor
+public class OffsetPage<T> {
+    private List<T> content;
+    private int page;
+    private int size;
+    private Integer nextPage;
+
+    public static <T> OffsetPage<T> of(Slice<T> slice) {
+        return new OffsetPage<>(slice.getContent(), slice.getNumber(), slice.getSize(),
+                slice.hasNext() ? slice.getNumber() + 1 : null);
+    }
+}
@@ -0,0 +1,14 @@
+package tn.esprit.spring.kaddem.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import tn.esprit.spring.kaddem.entities.Niveau;
+
+@Getter
+@AllArgsConstructor
+public class PromotionEquipe {
+    private Integer idEquipe;
+    private Niveau niveauActuel;
+    private Niveau nouveauNiveau;
+    private long nbEtudiantsQualifies;
+}
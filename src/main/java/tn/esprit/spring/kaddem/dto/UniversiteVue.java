@@ -0,0 +1,18 @@
+package tn.esprit.spring.kaddem.dto;
+
+import com.fasterxml.jackson.annotation.JsonFilter;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import tn.esprit.spring.kaddem.entities.Universite;
+
+@Getter
+@AllArgsConstructor
+@JsonFilter(ChampsFiltre.ID)
+public class UniversiteVue {
+    private Integer idUniv;
+    private String nomUniv;
+
+    public static UniversiteVue de(Universite u) {
+        return new UniversiteVue(u.getIdUniv(), u.getNomUniv());
+    }
+}
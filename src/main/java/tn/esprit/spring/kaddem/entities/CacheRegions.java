@@ -0,0 +1,19 @@
+package tn.esprit.spring.kaddem.entities;
+
+// Hibernate second-level cache regions, each one is declared with its size and TTL in application.conf
+public final class CacheRegions {
+    public static final String DEPARTEMENT = "departement";
+    public static final String UNIVERSITE = "universite";
+    public static final String UNIVERSITE_DEPARTEMENTS = "universite-departements";
+    public static final String EQUIPE = "equipe";
+    public static final String DETAIL_EQUIPE = "detail-equipe";
+    public static final String REQUETES_REFERENCE = "requetes-reference";
+    public static final String DEFAULT_QUERY_RESULTS = "default-query-results-region";
+    public static final String UPDATE_TIMESTAMPS = "default-update-timestamps-region";
+
+    public static final String[] TOUTES = {DEPARTEMENT, UNIVERSITE, UNIVERSITE_DEPARTEMENTS, EQUIPE, DETAIL_EQUIPE,
+            REQUETES_REFERENCE, DEFAULT_QUERY_RESULTS, UPDATE_TIMESTAMPS};
+
+    private CacheRegions() {
+    }
+}
@@ -8,6 +8,11 @@ import java.util.Date;
 import javax.persistence.*;
 
 @Entity
+// same indexes as the Flyway migrations (db/migration), for the schemas Hibernate generates in the benchmarks
+@Table(indexes = {@Index(name = "idx_contrat_etudiant_archive", columnList = "etudiant_id_etudiant, archive"),
+        @Index(name = "idx_contrat_fin_archive", columnList = "dateFinContrat, archive"),
+        @Index(name = "idx_contrat_archive_debut", columnList = "archive, dateDebutContrat"),
+        @Index(name = "idx_contrat_periode", columnList = "dateDebutContrat, dateFinContrat, specialite, montantContrat")})
 @ToString
 public class Contrat implements Serializable{
     @Id
@@ -22,6 +27,7 @@ public class Contrat implements Serializable{
     private Boolean archive;
     private Integer montantContrat;
     @ManyToOne(cascade = CascadeType.ALL)
+    @JoinColumn(name = "etudiant_id_etudiant")
     private Etudiant etudiant;
 
     public Contrat() {
@@ -4,7 +4,12 @@ import java.io.Serializable;
 
 import javax.persistence.*;
 
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+
 @Entity
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = CacheRegions.DETAIL_EQUIPE)
 public class DetailEquipe implements Serializable{
     @Id
     @GeneratedValue(strategy= GenerationType.IDENTITY)
@@ -3,11 +3,19 @@ package tn.esprit.spring.kaddem.entities;
 import com.fasterxml.jackson.annotation.JsonIgnore;
 
 import java.io.Serializable;
+import java.util.Date;
 import java.util.Set;
 
 import javax.persistence.*;
 
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.ColumnDefault;
+
 @Entity
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = CacheRegions.EQUIPE)
+@Table(indexes = @Index(name = "idx_equipe_niveau_qualifies", columnList = "niveau, nbEtudiantsQualifies"))
 public class Equipe implements Serializable{
     @Id
     @GeneratedValue(strategy= GenerationType.IDENTITY)
@@ -17,11 +25,23 @@ public class Equipe implements Serializable{
     private Niveau niveau;
     //@ManyToMany(mappedBy="equipes")
     @ManyToMany(cascade =CascadeType.ALL)
+    @JoinTable(name = "equipe_etudiants", joinColumns = @JoinColumn(name = "equipe_id_equipe"),
+            inverseJoinColumns = @JoinColumn(name = "etudiants_id_etudiant"),
+            indexes = @Index(name = "idx_equipe_etudiants_etudiant", columnList = "etudiants_id_etudiant, equipe_id_equipe"))
 
     @JsonIgnore
     private Set<Etudiant> etudiants;
     @OneToOne
     private DetailEquipe detailEquipe;
+    // written by services.AgregatsEquipes in SQL only, never by Hibernate
+    @JsonIgnore
+    @ColumnDefault("0")
+    @Column(nullable = false, insertable = false, updatable = false)
+    private Integer nbEtudiantsQualifies;
+    @JsonIgnore
+    @Temporal(TemporalType.DATE)
+    @Column(insertable = false, updatable = false)
+    private Date seuilQualification;
 
     public Equipe() {
         // TODO Auto-generated constructor stub
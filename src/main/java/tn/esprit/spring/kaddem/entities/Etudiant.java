@@ -12,11 +12,16 @@ import javax.persistence.*;
 
 @SuppressWarnings("SpellCheckingInspection")
 @Entity
+@Table(indexes = {@Index(name = "idx_etudiant_nom_prenom", columnList = "nom_e, prenom_e"),
+        @Index(name = "idx_etudiant_departement", columnList = "departement_id_depart")})
 public class Etudiant implements Serializable{
     @Id
     @GeneratedValue(strategy= GenerationType.IDENTITY)
     private Integer idEtudiant;
+    // explicit names : the default strategy gives nome / prenome, the migrations and the native queries use these
+    @Column(name = "nom_e")
     private String nomE;
+    @Column(name = "prenom_e")
     private String prenomE;
     @Enumerated(EnumType.STRING)
     private Option op;
@@ -0,0 +1,362 @@
+package tn.esprit.spring.kaddem.jobs;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import tn.esprit.spring.kaddem.dto.JobProgression;
+import tn.esprit.spring.kaddem.dto.JobsEtat;
+
+import java.lang.management.ManagementFactory;
+import java.sql.PreparedStatement;
+import java.sql.Statement;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Runs the JobPartitionne beans safely on several instances, through the tables of migration V3.
+ * A run is identified by (job, key) : the day for the scheduled runs, "manuel-" and an instant for the runs
+ * asked for through the API, so a finished run of the day never turns a manual one into a no-op. The instance
+ * holding the job lease creates it with its id-range partitions, then the workers of every instance claim
+ * partitions (a partition lease, renewed at each chunk) and process them chunk by chunk, each chunk committing
+ * its checkpoint with its work.
+ * A crashed worker's partition is claimed again once its lease expires and resumes after the last checkpoint,
+ * reprendre() picks up runs left unfinished. A partition failing tentatives-max times makes the run ECHEC.
+ * Chunks go through RegulateurBatch, which caps their connections and makes them yield to the API.
+ */
+@Slf4j
+@Component
+public class ExecuteurJobs {
+    static final String A_FAIRE = "A_FAIRE";
+    static final String EN_COURS = "EN_COURS";
+    static final String TERMINE = "TERMINE";
+    static final String ECHEC = "ECHEC";
+
+    private static final String RENOUVELER_BAIL = "UPDATE job_bail SET proprietaire = ?, expire_le = NOW(3) + INTERVAL ? SECOND"
+            + " WHERE nom_job = ? AND (proprietaire = ? OR expire_le < NOW(3))";
+    private static final String CREER_BAIL = "INSERT INTO job_bail (nom_job, proprietaire, expire_le)"
+            + " VALUES (?, ?, NOW(3) + INTERVAL ? SECOND)";
+    private static final String LIBERER_BAIL = "DELETE FROM job_bail WHERE nom_job = ? AND proprietaire = ?";
+    private static final String PARTITIONS_DISPONIBLES = "SELECT numero FROM job_partition WHERE id_execution = ?"
+            + " AND tentatives < ? AND (statut = 'A_FAIRE' OR (statut = 'EN_COURS' AND expire_le < NOW(3)))";
+    private static final String RECLAMER_PARTITION = "UPDATE job_partition SET statut = 'EN_COURS', proprietaire = ?,"
+            + " expire_le = NOW(3) + INTERVAL ? SECOND, tentatives = tentatives + 1 WHERE id_execution = ? AND numero = ?"
+            + " AND tentatives < ? AND (statut = 'A_FAIRE' OR (statut = 'EN_COURS' AND expire_le < NOW(3)))";
+    // locks the partition row until the chunk commits : nobody can take it over in the middle of a chunk
+    private static final String RENOUVELER_PARTITION = "UPDATE job_partition SET expire_le = NOW(3) + INTERVAL ? SECOND"
+            + " WHERE id_execution = ? AND numero = ? AND proprietaire = ? AND statut = 'EN_COURS'";
+    private static final String CHECKPOINT = "UPDATE job_partition SET dernier_id = ?, lignes = lignes + ?"
+            + " WHERE id_execution = ? AND numero = ?";
+
+    private static final String PROGRESSION = "SELECT e.id_execution, e.nom_job, e.cle_execution, e.statut, e.debut, e.fin,"
+            + " GREATEST(e.lignes, COALESCE(SUM(p.lignes), 0)) AS lignes, COUNT(p.numero) AS nb_partitions,"
+            + " COALESCE(SUM(p.statut = 'TERMINE'), 0) AS terminees, COALESCE(SUM(p.statut = 'EN_COURS'), 0) AS en_cours,"
+            + " COALESCE(SUM(p.id_fin - p.id_debut + 1), 0) AS etendue, COALESCE(SUM(CASE WHEN p.statut = 'TERMINE'"
+            + " THEN p.id_fin - p.id_debut + 1 WHEN p.dernier_id IS NULL THEN 0 ELSE p.dernier_id - p.id_debut + 1 END), 0)"
+            + " AS faits FROM job_execution e LEFT JOIN job_partition p ON p.id_execution = e.id_execution"
+            + " WHERE (? IS NULL OR e.nom_job = ?) GROUP BY e.id_execution ORDER BY e.id_execution DESC LIMIT ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transaction;
+    private final ThreadPoolTaskExecutor jobExecutor;
+    private final RegulateurBatch regulateur;
+    private final Map<String, JobPartitionne> jobs;
+    private final String noeud = ManagementFactory.getRuntimeMXBean().getName() + "-"
+            + UUID.randomUUID().toString().substring(0, 8);
+    private final int nbPartitions;
+    private final int tailleChunk;
+    private final int bailSecondes;
+    private final int tentativesMax;
+
+    public ExecuteurJobs(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager,
+                         @Qualifier("jobExecutor") ThreadPoolTaskExecutor jobExecutor, RegulateurBatch regulateur,
+                         List<JobPartitionne> jobs,
+                         @Value("${kaddem.jobs.partitions:8}") int nbPartitions,
+                         @Value("${kaddem.jobs.taille-chunk:500}") int tailleChunk,
+                         @Value("${kaddem.jobs.bail-secondes:60}") int bailSecondes,
+                         @Value("${kaddem.jobs.tentatives-max:3}") int tentativesMax) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transaction = new TransactionTemplate(transactionManager);
+        this.jobExecutor = jobExecutor;
+        this.regulateur = regulateur;
+        this.jobs = jobs.stream().collect(Collectors.toMap(JobPartitionne::nom, Function.identity()));
+        this.nbPartitions = nbPartitions;
+        this.tailleChunk = tailleChunk;
+        this.bailSecondes = bailSecondes;
+        this.tentativesMax = tentativesMax;
+    }
+
+    // key of the scheduled run of the day, shared by every node triggering it
+    public static String cleDuJour() {
+        return LocalDate.now().toString();
+    }
+
+    // key of a manual run, never the key of the day's run nor of an earlier manual run
+    public static String cleManuelle() {
+        return "manuel-" + Instant.now();
+    }
+
+    // returns the rows processed by this node, 0 when the run was already done elsewhere ; throws when a worker
+    // failed or the run ended ECHEC, so that the caller (monitoring.JobMetrics) records a failure
+    public int executer(String nomJob, String cleExecution) {
+        JobPartitionne job = jobs.get(nomJob);
+        if (job == null) {
+            throw new IllegalArgumentException("Job inconnu : " + nomJob);
+        }
+        Long idExecution = trouverOuCreerExecution(job, cleExecution);
+        if (idExecution == null) {
+            return 0;
+        }
+        return traiterExecution(idExecution, job);
+    }
+
+    // last runs of every job (or of one), with the node's worker queue and batch throttling
+    public JobsEtat etat(String nomJob, int limite) {
+        List<JobProgression> executions = jdbcTemplate.query(PROGRESSION, (rs, i) -> {
+            long etendue = rs.getLong("etendue");
+            String statut = rs.getString("statut");
+            double progression = etendue > 0 ? (double) rs.getLong("faits") / etendue : (TERMINE.equals(statut) ? 1 : 0);
+            return new JobProgression(rs.getLong("id_execution"), rs.getString("nom_job"), rs.getString("cle_execution"),
+                    statut, rs.getTimestamp("debut"), rs.getTimestamp("fin"), rs.getLong("lignes"),
+                    rs.getInt("nb_partitions"), rs.getInt("terminees"), rs.getInt("en_cours"), progression);
+        }, nomJob, nomJob, limite);
+        return new JobsEtat(jobExecutor.getActiveCount(), jobExecutor.getThreadPoolExecutor().getQueue().size(),
+                regulateur.getConnexionsUtilisees(), regulateur.getRequetesActives(), executions);
+    }
+
+    @Scheduled(fixedDelayString = "${kaddem.jobs.reprise-ms:60000}", initialDelayString = "${kaddem.jobs.reprise-ms:60000}")
+    public void reprendre() {
+        List<Map<String, Object>> executions = jdbcTemplate.queryForList(
+                "SELECT id_execution, nom_job FROM job_execution WHERE statut = 'EN_COURS'");
+        for (Map<String, Object> execution : executions) {
+            JobPartitionne job = jobs.get((String) execution.get("nom_job"));
+            if (job == null) {
+                continue;
+            }
+            try {
+                traiterExecution(((Number) execution.get("id_execution")).longValue(), job);
+            } catch (IllegalStateException e) {
+                log.warn(e.getMessage());
+            }
+        }
+    }
+
+    private Long trouverOuCreerExecution(JobPartitionne job, String cleExecution) {
+        for (int essai = 0; essai < 10; essai++) {
+            Map<String, Object> existante = trouverExecution(job.nom(), cleExecution);
+            if (existante != null) {
+                return EN_COURS.equals(existante.get("statut")) ? ((Number) existante.get("id_execution")).longValue() : null;
+            }
+            if (acquerirBail(job.nom())) {
+                try {
+                    return creerExecution(job, cleExecution);
+                } finally {
+                    jdbcTemplate.update(LIBERER_BAIL, job.nom(), noeud);
+                }
+            }
+            // another node is creating the run
+            try {
+                Thread.sleep(500);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return null;
+            }
+        }
+        log.warn("Job {} : exécution {} introuvable, bail détenu par un autre noeud", job.nom(), cleExecution);
+        return null;
+    }
+
+    private Map<String, Object> trouverExecution(String nomJob, String cleExecution) {
+        List<Map<String, Object>> lignes = jdbcTemplate.queryForList(
+                "SELECT id_execution, statut FROM job_execution WHERE nom_job = ? AND cle_execution = ?", nomJob, cleExecution);
+        return lignes.isEmpty() ? null : lignes.get(0);
+    }
+
+    private boolean acquerirBail(String nomJob) {
+        if (jdbcTemplate.update(RENOUVELER_BAIL, noeud, bailSecondes, nomJob, noeud) > 0) {
+            return true;
+        }
+        try {
+            return jdbcTemplate.update(CREER_BAIL, nomJob, noeud, bailSecondes) > 0;
+        } catch (DuplicateKeyException e) {
+            return false;
+        }
+    }
+
+    private Long creerExecution(JobPartitionne job, String cleExecution) {
+        Map<String, Object> existante = trouverExecution(job.nom(), cleExecution);
+        if (existante != null) {
+            return EN_COURS.equals(existante.get("statut")) ? ((Number) existante.get("id_execution")).longValue() : null;
+        }
+        int[] bornes = job.bornes();
+        return transaction.execute(status -> {
+            GeneratedKeyHolder cle = new GeneratedKeyHolder();
+            jdbcTemplate.update(connection -> {
+                PreparedStatement ps = connection.prepareStatement("INSERT INTO job_execution (nom_job, cle_execution,"
+                        + " statut, debut) VALUES (?, ?, ?, NOW(3))", Statement.RETURN_GENERATED_KEYS);
+                ps.setString(1, job.nom());
+                ps.setString(2, cleExecution);
+                ps.setString(3, bornes == null ? TERMINE : EN_COURS);
+                return ps;
+            }, cle);
+            long idExecution = cle.getKey().longValue();
+            if (bornes == null) {
+                return null;
+            }
+            List<Object[]> partitions = new ArrayList<>();
+            long etendue = (long) bornes[1] - bornes[0] + 1;
+            int nb = (int) Math.min(nbPartitions, etendue);
+            for (int i = 0; i < nb; i++) {
+                long debut = bornes[0] + etendue * i / nb;
+                long fin = bornes[0] + etendue * (i + 1) / nb - 1;
+                partitions.add(new Object[]{idExecution, i, (int) debut, (int) fin, A_FAIRE});
+            }
+            jdbcTemplate.batchUpdate("INSERT INTO job_partition (id_execution, numero, id_debut, id_fin, statut)"
+                    + " VALUES (?, ?, ?, ?, ?)", partitions);
+            log.info("Job {} : exécution {} créée, ids {} à {} en {} partition(s)", job.nom(), cleExecution,
+                    bornes[0], bornes[1], nb);
+            return idExecution;
+        });
+    }
+
+    private int traiterExecution(long idExecution, JobPartitionne job) {
+        int nbWorkers = jobExecutor.getMaxPoolSize();
+        List<Future<Integer>> workers = new ArrayList<>(nbWorkers);
+        for (int w = 0; w < nbWorkers; w++) {
+            workers.add(jobExecutor.submit(() -> travailler(idExecution, job)));
+        }
+        int lignes = 0;
+        int workersEnEchec = 0;
+        for (Future<Integer> worker : workers) {
+            try {
+                lignes += worker.get();
+            } catch (ExecutionException e) {
+                log.error("Job {} : worker en échec", job.nom(), e.getCause());
+                workersEnEchec++;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Job " + job.nom() + " : exécution " + idExecution + " interrompue", e);
+            }
+        }
+        String statut = finaliser(idExecution, job);
+        if (ECHEC.equals(statut)) {
+            throw new IllegalStateException("Job " + job.nom() + " : exécution " + idExecution + " en échec, "
+                    + lignes + " ligne(s) traitée(s) par ce noeud");
+        }
+        if (workersEnEchec > 0) {
+            throw new IllegalStateException("Job " + job.nom() + " : " + workersEnEchec + " worker(s) en échec sur"
+                    + " l'exécution " + idExecution + ", reprise par reprendre()");
+        }
+        return lignes;
+    }
+
+    // claims partitions one after the other until none is left
+    private int travailler(long idExecution, JobPartitionne job) {
+        int lignes = 0;
+        Integer numero;
+        while ((numero = reclamerPartition(idExecution)) != null) {
+            lignes += traiterPartition(idExecution, numero, job);
+        }
+        return lignes;
+    }
+
+    private Integer reclamerPartition(long idExecution) {
+        List<Integer> candidates = new ArrayList<>(jdbcTemplate.queryForList(PARTITIONS_DISPONIBLES, Integer.class,
+                idExecution, tentativesMax));
+        // workers starting at different partitions rarely compete for the same row
+        Collections.shuffle(candidates);
+        for (Integer numero : candidates) {
+            if (jdbcTemplate.update(RECLAMER_PARTITION, noeud, bailSecondes, idExecution, numero, tentativesMax) > 0) {
+                return numero;
+            }
+        }
+        return null;
+    }
+
+    private int traiterPartition(long idExecution, int numero, JobPartitionne job) {
+        Map<String, Object> partition = jdbcTemplate.queryForMap("SELECT id_debut, id_fin, dernier_id FROM job_partition"
+                + " WHERE id_execution = ? AND numero = ?", idExecution, numero);
+        int idFin = ((Number) partition.get("id_fin")).intValue();
+        Number dernierId = (Number) partition.get("dernier_id");
+        long debut = dernierId == null ? ((Number) partition.get("id_debut")).intValue() : dernierId.longValue() + 1;
+        int lignes = 0;
+        try {
+            while (debut <= idFin) {
+                int de = (int) debut;
+                int a = (int) Math.min(debut + tailleChunk - 1, idFin);
+                Integer traitees = regulateur.executer(() -> transaction.execute(status -> {
+                    if (jdbcTemplate.update(RENOUVELER_PARTITION, bailSecondes, idExecution, numero, noeud) == 0) {
+                        throw new IllegalStateException("bail de la partition " + numero + " perdu");
+                    }
+                    int n = job.traiter(de, a);
+                    jdbcTemplate.update(CHECKPOINT, a, n, idExecution, numero);
+                    return n;
+                }));
+                lignes += traitees;
+                debut = (long) a + 1;
+            }
+            jdbcTemplate.update("UPDATE job_partition SET statut = 'TERMINE', expire_le = NULL WHERE id_execution = ?"
+                    + " AND numero = ? AND proprietaire = ?", idExecution, numero, noeud);
+        } catch (RuntimeException e) {
+            log.warn("Job {} : partition {} de l'exécution {} interrompue après l'id {} : {}", job.nom(), numero,
+                    idExecution, debut - 1, e.getMessage());
+            libererPartition(idExecution, numero);
+        }
+        return lignes;
+    }
+
+    // handed back at once, the next claim resumes after the checkpoint
+    private void libererPartition(long idExecution, int numero) {
+        try {
+            jdbcTemplate.update("UPDATE job_partition SET statut = 'A_FAIRE', proprietaire = NULL, expire_le = NULL"
+                    + " WHERE id_execution = ? AND numero = ? AND proprietaire = ? AND statut = 'EN_COURS'",
+                    idExecution, numero, noeud);
+        } catch (DataAccessException e) {
+            log.warn("Partition {} de l'exécution {} : libération impossible, reprise à l'expiration du bail", numero,
+                    idExecution);
+        }
+    }
+
+    // the status the run ends with, null while partitions remain to be processed
+    private String finaliser(long idExecution, JobPartitionne job) {
+        // exhausted : out of attempts and not held by a live lease
+        Map<String, Object> etat = jdbcTemplate.queryForMap("SELECT COALESCE(SUM(statut <> 'TERMINE'), 0) AS restantes,"
+                + " COALESCE(SUM(statut <> 'TERMINE' AND tentatives >= ? AND NOT (statut = 'EN_COURS' AND expire_le >= NOW(3))), 0)"
+                + " AS epuisees, COALESCE(SUM(lignes), 0) AS lignes FROM job_partition WHERE id_execution = ?",
+                tentativesMax, idExecution);
+        long restantes = ((Number) etat.get("restantes")).longValue();
+        long epuisees = ((Number) etat.get("epuisees")).longValue();
+        long lignes = ((Number) etat.get("lignes")).longValue();
+        String statut;
+        if (epuisees > 0) {
+            statut = ECHEC;
+        } else if (restantes == 0) {
+            statut = TERMINE;
+        } else {
+            // still running elsewhere, or handed back and retried by reprendre()
+            return null;
+        }
+        if (jdbcTemplate.update("UPDATE job_execution SET statut = ?, fin = NOW(3), lignes = ? WHERE id_execution = ?"
+                + " AND statut = 'EN_COURS'", statut, lignes, idExecution) > 0) {
+            log.info("Job {} : exécution {} {}, {} ligne(s)", job.nom(), idExecution, statut, lignes);
+        }
+        return statut;
+    }
+}
@@ -0,0 +1,63 @@
+package tn.esprit.spring.kaddem.jobs;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import tn.esprit.spring.kaddem.services.ContratServiceImpl;
+import tn.esprit.spring.kaddem.services.IContratService;
+
+import java.sql.Timestamp;
+import java.time.LocalDate;
+
+/**
+ * Contract expiry, partitioned by contract id over the non-archived contracts ending within the notice window :
+ * each chunk reads its due contracts from the table, so the contracts written on any node are archived.
+ * The notices cover the end days that entered the window since the day of the last completed run, scheduled or
+ * manual, at most kaddem.echeancier.rattrapage-jours back ; a chunk retried after a failure reports its contracts
+ * again.
+ */
+@Component
+public class JobEcheancesContrats implements JobPartitionne {
+    public static final String NOM = "majStatusContrat";
+
+    private final IContratService contratService;
+    private final JdbcTemplate jdbcTemplate;
+    private final int joursRattrapage;
+
+    public JobEcheancesContrats(IContratService contratService, JdbcTemplate jdbcTemplate,
+                                @Value("${kaddem.echeancier.rattrapage-jours:3}") int joursRattrapage) {
+        this.contratService = contratService;
+        this.jdbcTemplate = jdbcTemplate;
+        this.joursRattrapage = joursRattrapage;
+    }
+
+    @Override
+    public String nom() {
+        return NOM;
+    }
+
+    @Override
+    public int[] bornes() {
+        LocalDate finPreavis = LocalDate.now().plusDays(ContratServiceImpl.JOURS_AVANT_ECHEANCE);
+        return jdbcTemplate.query("SELECT MIN(id_contrat), MAX(id_contrat) FROM contrat"
+                        + " WHERE (archive = false OR archive IS NULL) AND date_fin_contrat <= ?",
+                rs -> rs.next() && rs.getObject(1) != null ? new int[]{rs.getInt(1), rs.getInt(2)} : null,
+                java.sql.Date.valueOf(finPreavis));
+    }
+
+    @Override
+    public int traiter(int idDebut, int idFin) {
+        return contratService.retrieveAndUpdateStatusContrat(prevenusJusquA(LocalDate.now()), idDebut, idFin);
+    }
+
+    // end of the notice window of the last completed run, a manual run of today included (its key is not a day)
+    private LocalDate prevenusJusquA(LocalDate aujourdhui) {
+        Timestamp derniereExecution = jdbcTemplate.queryForObject("SELECT MAX(debut) FROM job_execution"
+                + " WHERE nom_job = ? AND statut = 'TERMINE'", Timestamp.class, NOM);
+        LocalDate dernierJour = aujourdhui.minusDays(joursRattrapage);
+        if (derniereExecution != null && derniereExecution.toLocalDateTime().toLocalDate().isAfter(dernierJour)) {
+            dernierJour = derniereExecution.toLocalDateTime().toLocalDate();
+        }
+        return dernierJour.plusDays(ContratServiceImpl.JOURS_AVANT_ECHEANCE);
+    }
+}
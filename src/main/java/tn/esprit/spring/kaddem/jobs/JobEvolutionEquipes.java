@@ -0,0 +1,32 @@
+package tn.esprit.spring.kaddem.jobs;
+
+import lombok.AllArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import tn.esprit.spring.kaddem.services.IEquipeService;
+
+// promotions of EquipeServiceImpl.evoluerEquipes, partitioned by team id
+@Component
+@AllArgsConstructor
+public class JobEvolutionEquipes implements JobPartitionne {
+    public static final String NOM = "faireEvoluerEquipes";
+
+    private final IEquipeService equipeService;
+    private final JdbcTemplate jdbcTemplate;
+
+    @Override
+    public String nom() {
+        return NOM;
+    }
+
+    @Override
+    public int[] bornes() {
+        return jdbcTemplate.query("SELECT MIN(id_equipe), MAX(id_equipe) FROM equipe",
+                rs -> rs.next() && rs.getObject(1) != null ? new int[]{rs.getInt(1), rs.getInt(2)} : null);
+    }
+
+    @Override
+    public int traiter(int idDebut, int idFin) {
+        return equipeService.evoluerEquipes(false, idDebut, idFin).size();
+    }
+}
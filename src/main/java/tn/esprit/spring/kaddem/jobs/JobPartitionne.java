@@ -0,0 +1,16 @@
+package tn.esprit.spring.kaddem.jobs;
+
+/**
+ * A job run by ExecuteurJobs : its rows are split into id ranges, each range processed in chunks.
+ * traiter runs inside the chunk transaction, the one that also records the checkpoint, so a chunk is either
+ * done and checkpointed or neither.
+ */
+public interface JobPartitionne {
+    String nom();
+
+    // smallest and largest id to process, null when there is nothing to do
+    int[] bornes();
+
+    // processes the rows whose id is in [idDebut, idFin], returns the number of rows handled
+    int traiter(int idDebut, int idFin);
+}
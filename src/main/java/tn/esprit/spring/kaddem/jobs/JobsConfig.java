@@ -0,0 +1,36 @@
+package tn.esprit.spring.kaddem.jobs;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.task.TaskExecutorBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+/**
+ * Thread pools kept apart : the cron triggers run on the spring.task.scheduling pool, the partitions on
+ * jobExecutor, and the interactive async work (StreamingResponseBody exports) on applicationTaskExecutor.
+ */
+@Configuration
+public class JobsConfig {
+
+    // workers of this node claiming the partitions of the running jobs ; what keeps them from crowding out the
+    // requests is RegulateurBatch, thread priorities are ignored by the JVM on Linux
+    @Bean
+    public ThreadPoolTaskExecutor jobExecutor(@Value("${kaddem.jobs.workers:4}") int workers) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(workers);
+        executor.setMaxPoolSize(workers);
+        executor.setThreadNamePrefix("job-");
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(30);
+        return executor;
+    }
+
+    // declaring jobExecutor turns off Boot's default executor, which Spring MVC uses for async requests
+    @Lazy
+    @Bean(name = {"applicationTaskExecutor", "taskExecutor"})
+    public ThreadPoolTaskExecutor applicationTaskExecutor(TaskExecutorBuilder builder) {
+        return builder.build();
+    }
+}
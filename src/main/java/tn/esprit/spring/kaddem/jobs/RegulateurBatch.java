@@ -0,0 +1,95 @@
+package tn.esprit.spring.kaddem.jobs;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import tn.esprit.spring.kaddem.monitoring.ChargeInteractiveFilter;
+
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Keeps the batch chunks from starving the API : a chunk holds one permit for its transaction, and there are
+ * kaddem.jobs.part-pool of spring.datasource.hikari.maximum-pool-size permits (at least one), so the batch never
+ * uses more than that share of the shared pool and the rest stays reserved to the requests, resized with the
+ * pool. Before taking its permit, a chunk yields while more than kaddem.jobs.seuil-requetes-actives requests are
+ * in flight, at most attente-max-ms so that the job still progresses, and well within the partition lease.
+ */
+@Component
+public class RegulateurBatch {
+    private final ChargeInteractiveFilter chargeInteractive;
+    private final Semaphore connexions;
+    private final int connexionsMax;
+    private final int seuilRequetesActives;
+    private final long pauseMs;
+    private final long attenteMaxMs;
+    private final Timer cessions;
+
+    public RegulateurBatch(ChargeInteractiveFilter chargeInteractive, MeterRegistry registry,
+                           @Value("${spring.datasource.hikari.maximum-pool-size:10}") int taillePool,
+                           @Value("${kaddem.jobs.part-pool:0.25}") double partPool,
+                           @Value("${kaddem.jobs.seuil-requetes-actives:8}") int seuilRequetesActives,
+                           @Value("${kaddem.jobs.pause-ms:100}") long pauseMs,
+                           @Value("${kaddem.jobs.attente-max-ms:20000}") long attenteMaxMs) {
+        int connexionsMax = connexionsMax(taillePool, partPool);
+        this.chargeInteractive = chargeInteractive;
+        this.connexions = new Semaphore(connexionsMax, true);
+        this.connexionsMax = connexionsMax;
+        this.seuilRequetesActives = seuilRequetesActives;
+        this.pauseMs = pauseMs;
+        this.attenteMaxMs = attenteMaxMs;
+        this.cessions = Timer.builder("kaddem.jobs.cession")
+                .description("Time batch chunks spent yielding to interactive traffic")
+                .register(registry);
+        Gauge.builder("kaddem.jobs.connexions.utilisees", connexions, s -> connexionsMax - s.availablePermits())
+                .description("Connections held by batch chunks")
+                .register(registry);
+    }
+
+    static int connexionsMax(int taillePool, double partPool) {
+        return Math.max(1, (int) (taillePool * partPool));
+    }
+
+    public <T> T executer(Supplier<T> chunk) {
+        ceder();
+        try {
+            connexions.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("chunk interrompu", e);
+        }
+        try {
+            return chunk.get();
+        } finally {
+            connexions.release();
+        }
+    }
+
+    private void ceder() {
+        if (chargeInteractive.getRequetesActives() <= seuilRequetesActives) {
+            return;
+        }
+        long debut = System.nanoTime();
+        long limite = debut + TimeUnit.MILLISECONDS.toNanos(attenteMaxMs);
+        try {
+            while (chargeInteractive.getRequetesActives() > seuilRequetesActives && System.nanoTime() < limite) {
+                Thread.sleep(pauseMs);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            cessions.record(System.nanoTime() - debut, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    public int getConnexionsUtilisees() {
+        return connexionsMax - connexions.availablePermits();
+    }
+
+    public int getRequetesActives() {
+        return chargeInteractive.getRequetesActives();
+    }
+}
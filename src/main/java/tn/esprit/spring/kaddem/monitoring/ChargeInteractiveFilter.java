@@ -0,0 +1,82 @@
+package tn.esprit.spring.kaddem.monitoring;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Number of API requests being served (kaddem.http.requetes.actives), read by jobs.RegulateurBatch to make
+ * the batch work yield under interactive load. Actuator scrapes are not user traffic and are left out, as are
+ * the reporting exports (/export) : they last as long as a client reads, however slowly, and would keep the
+ * batch yielding for nothing ; ExportServiceImpl caps them instead. An asynchronous request (the NDJSON streams)
+ * counts until its async processing completes, not just until the first dispatch returns : its later
+ * dispatches are skipped, the default of OncePerRequestFilter.
+ */
+@Component
+public class ChargeInteractiveFilter extends OncePerRequestFilter {
+    private final AtomicInteger requetesActives = new AtomicInteger();
+
+    public ChargeInteractiveFilter(MeterRegistry registry) {
+        Gauge.builder("kaddem.http.requetes.actives", requetesActives, AtomicInteger::get)
+                .description("API requests in flight")
+                .register(registry);
+    }
+
+    public int getRequetesActives() {
+        return requetesActives.get();
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        String chemin = request.getServletPath();
+        return chemin.startsWith("/actuator") || chemin.endsWith("/export");
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        requetesActives.incrementAndGet();
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            if (request.isAsyncStarted()) {
+                // still in the first dispatch : the container completes the request after it returns
+                request.getAsyncContext().addListener(new FinAsynchrone());
+            } else {
+                requetesActives.decrementAndGet();
+            }
+        }
+    }
+
+    // onComplete also follows a timeout or an error
+    private final class FinAsynchrone implements AsyncListener {
+        @Override
+        public void onComplete(AsyncEvent event) {
+            requetesActives.decrementAndGet();
+        }
+
+        @Override
+        public void onTimeout(AsyncEvent event) {
+        }
+
+        @Override
+        public void onError(AsyncEvent event) {
+        }
+
+        @Override
+        public void onStartAsync(AsyncEvent event) {
+            // restarted from an async dispatch : keep listening to the new cycle
+            event.getAsyncContext().addListener(this);
+        }
+    }
+}
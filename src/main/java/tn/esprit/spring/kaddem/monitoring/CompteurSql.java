@@ -0,0 +1,53 @@
+package tn.esprit.spring.kaddem.monitoring;
+
+import java.util.function.IntSupplier;
+
+// statements executed by the current thread between demarrer() and arreter(), fed by SqlExecutionListener
+public final class CompteurSql {
+    private static final ThreadLocal<Compteur> COMPTEUR = new ThreadLocal<>();
+
+    private CompteurSql() {
+    }
+
+    public static void demarrer() {
+        demarrer(null);
+    }
+
+    // with a budget, the statement that would exceed it fails before running (read lazily : the handler is not known yet)
+    public static void demarrer(IntSupplier budget) {
+        COMPTEUR.set(new Compteur(budget));
+    }
+
+    static void verifier(int n) {
+        Compteur compteur = COMPTEUR.get();
+        if (compteur == null || compteur.budget == null) {
+            return;
+        }
+        int budget = compteur.budget.getAsInt();
+        if (budget >= 0 && compteur.nombre + n > budget) {
+            throw new IllegalStateException(String.format("%d requetes SQL pour un budget de %d", compteur.nombre + n, budget));
+        }
+    }
+
+    static void incrementer(int n) {
+        Compteur compteur = COMPTEUR.get();
+        if (compteur != null) {
+            compteur.nombre += n;
+        }
+    }
+
+    public static int arreter() {
+        Compteur compteur = COMPTEUR.get();
+        COMPTEUR.remove();
+        return compteur == null ? 0 : compteur.nombre;
+    }
+
+    private static final class Compteur {
+        private final IntSupplier budget;
+        private int nombre;
+
+        Compteur(IntSupplier budget) {
+            this.budget = budget;
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package tn.esprit.spring.kaddem.monitoring;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.IntSupplier;
+
+/**
+ * Instrumentation of the scheduled jobs : kaddem.job.duration (timer, tagged by outcome),
+ * kaddem.job.rows (rows handled) and kaddem.job.last.success (epoch seconds of the last successful run).
+ */
+@Component
+public class JobMetrics {
+    private final MeterRegistry registry;
+    private final Map<String, AtomicLong> derniersSucces = new ConcurrentHashMap<>();
+
+    public JobMetrics(MeterRegistry registry) {
+        this.registry = registry;
+    }
+
+    public void executer(String job, IntSupplier travail) {
+        AtomicLong dernierSucces = derniersSucces.computeIfAbsent(job,
+                j -> registry.gauge("kaddem.job.last.success", Tags.of("job", j), new AtomicLong()));
+        Timer.Sample sample = Timer.start(registry);
+        String resultat = "echec";
+        try {
+            int lignes = travail.getAsInt();
+            registry.counter("kaddem.job.rows", "job", job).increment(lignes);
+            dernierSucces.set(System.currentTimeMillis() / 1000);
+            resultat = "succes";
+        } finally {
+            sample.stop(registry.timer("kaddem.job.duration", "job", job, "result", resultat));
+        }
+    }
+}
@@ -0,0 +1,13 @@
+package tn.esprit.spring.kaddem.monitoring;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+// maximum number of SQL statements one call of the annotated endpoint may run, see QueryBudgetFilter
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface QueryBudget {
+    int value();
+}
@@ -0,0 +1,78 @@
+package tn.esprit.spring.kaddem.monitoring;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.HandlerMapping;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+
+/**
+ * Counts the SQL statements run while serving each request (kaddem.http.requete.sql) and compares them with the
+ * endpoint budget : @QueryBudget on the handler method, kaddem.sql.budget-par-requete otherwise.
+ * Over budget is a warning. With kaddem.sql.budget-echec=true (tests) the statement that exceeds the budget throws
+ * an IllegalStateException instead of running, while the request is still in progress, so it fails before its
+ * transaction commits or its response is written.
+ */
+@Slf4j
+@Component
+public class QueryBudgetFilter extends OncePerRequestFilter {
+    private final MeterRegistry registry;
+    private final int budgetParDefaut;
+    private final boolean echecSiDepasse;
+
+    public QueryBudgetFilter(MeterRegistry registry,
+                             @Value("${kaddem.sql.budget-par-requete:30}") int budgetParDefaut,
+                             @Value("${kaddem.sql.budget-echec:false}") boolean echecSiDepasse) {
+        this.registry = registry;
+        this.budgetParDefaut = budgetParDefaut;
+        this.echecSiDepasse = echecSiDepasse;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        CompteurSql.demarrer(echecSiDepasse ? () -> budget(request) : null);
+        int nbRequetes;
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            nbRequetes = CompteurSql.arreter();
+        }
+        Object handler = request.getAttribute(HandlerMapping.BEST_MATCHING_HANDLER_ATTRIBUTE);
+        if (!(handler instanceof HandlerMethod)) {
+            return;
+        }
+        HandlerMethod methode = (HandlerMethod) handler;
+        String endpoint = methode.getBeanType().getSimpleName() + "." + methode.getMethod().getName();
+        DistributionSummary.builder("kaddem.http.requete.sql")
+                .description("SQL statements per HTTP request")
+                .tags("endpoint", endpoint)
+                .publishPercentiles(0.5, 0.95, 0.99)
+                .register(registry)
+                .record(nbRequetes);
+        int budget = budget(request);
+        if (nbRequetes > budget) {
+            log.warn("{} {} : {} requetes SQL pour un budget de {} ({})", request.getMethod(),
+                    request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE), nbRequetes, budget, endpoint);
+        }
+    }
+
+    // -1 until the handler is chosen : statements of the other filters are counted, not refused
+    private int budget(HttpServletRequest request) {
+        Object handler = request.getAttribute(HandlerMapping.BEST_MATCHING_HANDLER_ATTRIBUTE);
+        if (!(handler instanceof HandlerMethod)) {
+            return -1;
+        }
+        QueryBudget annotation = ((HandlerMethod) handler).getMethodAnnotation(QueryBudget.class);
+        return annotation != null ? annotation.value() : budgetParDefaut;
+    }
+}
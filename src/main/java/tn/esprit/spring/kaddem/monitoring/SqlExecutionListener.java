@@ -0,0 +1,84 @@
+package tn.esprit.spring.kaddem.monitoring;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import net.ttddyy.dsproxy.ExecutionInfo;
+import net.ttddyy.dsproxy.QueryInfo;
+import net.ttddyy.dsproxy.listener.QueryExecutionListener;
+import net.ttddyy.dsproxy.proxy.ParameterSetOperation;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Registered on the datasource proxy : times every statement (kaddem.sql.execution, tagged by statement type),
+ * counts statements for the current HTTP request, refusing the one over budget when QueryBudgetFilter enforces it,
+ * and logs the ones slower than kaddem.sql.seuil-lent-ms with their bound parameters.
+ */
+@Slf4j
+@Component
+public class SqlExecutionListener implements QueryExecutionListener {
+    private final MeterRegistry registry;
+    private final long seuilLentMs;
+
+    // lazy : the registry binds the pool metrics, so it needs the datasource this listener is built for ; resolved
+    // eagerly, the decorator would find its listeners still in creation and leave the datasource unwrapped
+    public SqlExecutionListener(@Lazy MeterRegistry registry, @Value("${kaddem.sql.seuil-lent-ms:200}") long seuilLentMs) {
+        this.registry = registry;
+        this.seuilLentMs = seuilLentMs;
+    }
+
+    @Override
+    public void beforeQuery(ExecutionInfo execInfo, List<QueryInfo> queryInfoList) {
+        CompteurSql.verifier(queryInfoList.size());
+    }
+
+    @Override
+    public void afterQuery(ExecutionInfo execInfo, List<QueryInfo> queryInfoList) {
+        CompteurSql.incrementer(queryInfoList.size());
+        String type = queryInfoList.isEmpty() ? "other" : typeRequete(queryInfoList.get(0).getQuery());
+        registry.timer("kaddem.sql.execution", "type", type, "batch", String.valueOf(execInfo.isBatch()))
+                .record(execInfo.getElapsedTime(), TimeUnit.MILLISECONDS);
+        if (execInfo.getElapsedTime() >= seuilLentMs) {
+            for (QueryInfo queryInfo : queryInfoList) {
+                log.warn("Requete lente ({} ms) : {} parametres {}", execInfo.getElapsedTime(), queryInfo.getQuery(),
+                        parametres(queryInfo));
+            }
+        }
+    }
+
+    static String typeRequete(String sql) {
+        String debut = sql.stripLeading();
+        int fin = 0;
+        while (fin < debut.length() && Character.isLetter(debut.charAt(fin))) {
+            fin++;
+        }
+        String motCle = debut.substring(0, fin).toLowerCase(Locale.ROOT);
+        switch (motCle) {
+            case "select":
+            case "insert":
+            case "update":
+            case "delete":
+                return motCle;
+            default:
+                return "other";
+        }
+    }
+
+    private static String parametres(QueryInfo queryInfo) {
+        StringBuilder sb = new StringBuilder();
+        for (List<ParameterSetOperation> jeu : queryInfo.getParametersList()) {
+            sb.append('[');
+            for (int i = 0; i < jeu.size(); i++) {
+                Object[] args = jeu.get(i).getArgs();
+                sb.append(i == 0 ? "" : ", ").append(args.length > 1 ? args[1] : null);
+            }
+            sb.append(']');
+        }
+        return sb.toString();
+    }
+}
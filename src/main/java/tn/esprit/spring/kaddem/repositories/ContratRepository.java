@@ -5,17 +5,31 @@ import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.CrudRepository;
 import org.springframework.data.repository.query.FluentQuery;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import tn.esprit.spring.kaddem.dto.ContratColonnes;
+import tn.esprit.spring.kaddem.dto.ContratEcheance;
+import tn.esprit.spring.kaddem.dto.ContratSpecialiteStat;
+import tn.esprit.spring.kaddem.dto.ContratVue;
 import tn.esprit.spring.kaddem.entities.Contrat;
+import tn.esprit.spring.kaddem.entities.Specialite;
 
+import javax.persistence.QueryHint;
+
+import java.util.Collection;
 import java.util.Date;
 import java.util.List;
 import java.util.Optional;
 import java.util.function.Function;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE;
+import static org.hibernate.jpa.QueryHints.HINT_READONLY;
 
 @Repository
 public interface ContratRepository extends CrudRepository<Contrat, Integer> {
@@ -25,4 +39,67 @@ public Integer getnbContratsValides(@Param("startDate") Date startDate, @Param("
 
 public List<Contrat> findAll();
 public Contrat findByIdContrat(Integer idContrat);
+
+    // response columns only : no Contrat or Etudiant entity is hydrated, the student comes from a LEFT JOIN
+    String VUE = "SELECT new tn.esprit.spring.kaddem.dto.ContratVue(c.idContrat, c.dateDebutContrat, c.dateFinContrat,"
+            + " c.specialite, c.archive, c.montantContrat, e.idEtudiant, e.nomE, e.prenomE, e.op)"
+            + " FROM Contrat c LEFT JOIN c.etudiant e";
+
+    @Query(VUE)
+    public List<ContratVue> findVues();
+
+    @Query(VUE + " WHERE c.idContrat = :idContrat")
+    public Optional<ContratVue> findVueById(@Param("idContrat") Integer idContrat);
+
+    // the foreign key column only, the student is not loaded
+    @Query("SELECT c.etudiant.idEtudiant FROM Contrat c WHERE c.idContrat = :idContrat")
+    public Integer findIdEtudiant(@Param("idContrat") Integer idContrat);
+
+    // the stored end date, before an update replaces it (EcheancierContrats.planifier)
+    @Query("SELECT c.dateFinContrat FROM Contrat c WHERE c.idContrat = :idContrat")
+    public Date findDateFinContrat(@Param("idContrat") Integer idContrat);
+
+    // served by idx_contrat_etudiant_archive, never loads the student's contracts
+    @Query("SELECT COUNT(c) FROM Contrat c WHERE c.etudiant.idEtudiant = :idEtudiant"
+            + " AND (c.archive = false OR c.archive IS NULL)")
+    public long countContratsActifs(@Param("idEtudiant") Integer idEtudiant);
+
+    // keyset pagination : the Pageable only carries the page size, the position comes from apresId
+    @Query(VUE + " WHERE c.idContrat > :apresId"
+            + " AND (:specialite IS NULL OR c.specialite = :specialite)"
+            + " AND (:archive IS NULL OR c.archive = :archive) ORDER BY c.idContrat")
+    public List<ContratVue> findPageApres(@Param("apresId") Integer apresId, @Param("specialite") Specialite specialite,
+                                       @Param("archive") Boolean archive, Pageable pageable);
+
+    // forward-only cursor : MySQL Connector/J streams row by row when the fetch size is Integer.MIN_VALUE
+    @QueryHints({@QueryHint(name = HINT_FETCH_SIZE, value = "" + Integer.MIN_VALUE),
+            @QueryHint(name = HINT_READONLY, value = "true")})
+    @Query(VUE + " WHERE c.idContrat > :apresId"
+            + " AND (:specialite IS NULL OR c.specialite = :specialite)"
+            + " AND (:archive IS NULL OR c.archive = :archive) ORDER BY c.idContrat")
+    public Stream<ContratVue> streamApres(@Param("apresId") Integer apresId, @Param("specialite") Specialite specialite,
+                                       @Param("archive") Boolean archive);
+
+    @Modifying
+    @Query("UPDATE Contrat c SET c.archive = true WHERE c.idContrat IN :ids AND (c.archive = false OR c.archive IS NULL)")
+    public int archiverContrats(@Param("ids") Collection<Integer> ids);
+
+    // non-archived contracts of an id range ending on or before jusqua, for one chunk of jobs.JobEcheancesContrats
+    @Query("SELECT c.idContrat AS idContrat, c.dateFinContrat AS dateFinContrat FROM Contrat c"
+            + " WHERE c.idContrat BETWEEN :idDebut AND :idFin AND (c.archive = false OR c.archive IS NULL)"
+            + " AND c.dateFinContrat <= :jusqua")
+    public List<ContratEcheance> findEcheances(@Param("idDebut") int idDebut, @Param("idFin") int idFin,
+                                               @Param("jusqua") Date jusqua);
+
+    @QueryHints({@QueryHint(name = HINT_FETCH_SIZE, value = "" + Integer.MIN_VALUE),
+            @QueryHint(name = HINT_READONLY, value = "true")})
+    @Query("SELECT c.idContrat AS idContrat, c.dateDebutContrat AS dateDebutContrat, c.dateFinContrat AS dateFinContrat,"
+            + " c.specialite AS specialite, c.archive AS archive, c.montantContrat AS montantContrat FROM Contrat c")
+    public Stream<ContratColonnes> streamColonnes();
+
+    // contracts overlapping [startDate, endDate], aggregated by the database : at most one row per Specialite
+    @Query("SELECT c.specialite AS specialite, COUNT(c) AS nbContrats, COALESCE(SUM(c.montantContrat), 0) AS montantTotal"
+            + " FROM Contrat c WHERE c.dateDebutContrat <= :endDate AND c.dateFinContrat >= :startDate"
+            + " GROUP BY c.specialite")
+    public List<ContratSpecialiteStat> statistiquesParSpecialite(@Param("startDate") Date startDate, @Param("endDate") Date endDate);
 }
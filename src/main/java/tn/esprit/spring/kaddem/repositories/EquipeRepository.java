@@ -1,12 +1,50 @@
 package tn.esprit.spring.kaddem.repositories;
 
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import tn.esprit.spring.kaddem.dto.EquipeEvolutionStat;
+import tn.esprit.spring.kaddem.dto.EquipeVue;
+import tn.esprit.spring.kaddem.entities.CacheRegions;
 import tn.esprit.spring.kaddem.entities.Equipe;
+import tn.esprit.spring.kaddem.entities.Niveau;
+
+import javax.persistence.QueryHint;
+import java.util.Collection;
+import java.util.List;
+
+import static org.hibernate.jpa.QueryHints.HINT_CACHEABLE;
+import static org.hibernate.jpa.QueryHints.HINT_CACHE_REGION;
 
 @Repository
 public interface EquipeRepository extends CrudRepository<Equipe,Integer> {
 
+    // query cache : the id list is cached, the rows themselves come from the entity region
+    @QueryHints({@QueryHint(name = HINT_CACHEABLE, value = "true"),
+            @QueryHint(name = HINT_CACHE_REGION, value = CacheRegions.REQUETES_REFERENCE)})
+    public List<Equipe> findAll();
+
+    // scalar rows in the query cache, invalidated with the equipe and detail_equipe tables
+    @QueryHints({@QueryHint(name = HINT_CACHEABLE, value = "true"),
+            @QueryHint(name = HINT_CACHE_REGION, value = CacheRegions.REQUETES_REFERENCE)})
+    @Query("SELECT new tn.esprit.spring.kaddem.dto.EquipeVue(e.idEquipe, e.nomEquipe, e.niveau, d.idDetailEquipe,"
+            + " d.salle, d.thematique) FROM Equipe e LEFT JOIN e.detailEquipe d")
+    public List<EquipeVue> findVues();
+
+    // range scan of idx_equipe_niveau_qualifies, the counters being kept by services.AgregatsEquipes
+    @Query("SELECT e.idEquipe AS idEquipe, e.niveau AS niveau, e.nbEtudiantsQualifies AS nbEtudiants FROM Equipe e"
+            + " WHERE e.niveau IN :niveaux AND e.nbEtudiantsQualifies >= :minimum"
+            + " AND e.idEquipe BETWEEN :idDebut AND :idFin")
+    public List<EquipeEvolutionStat> findEquipesAPromouvoir(@Param("niveaux") Collection<Niveau> niveaux,
+                                                            @Param("minimum") int minimum,
+                                                            @Param("idDebut") int idDebut, @Param("idFin") int idFin);
 
+    @Modifying
+    @Query("UPDATE Equipe e SET e.niveau = :cible WHERE e.niveau = :source AND e.idEquipe IN :ids")
+    public int changerNiveau(@Param("ids") Collection<Integer> ids, @Param("source") Niveau source,
+                             @Param("cible") Niveau cible);
 
 }
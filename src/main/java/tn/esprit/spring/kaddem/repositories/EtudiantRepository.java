@@ -1,16 +1,64 @@
 package tn.esprit.spring.kaddem.repositories;
 
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.jpa.repository.Lock;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.CrudRepository;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import tn.esprit.spring.kaddem.dto.EtudiantVue;
 import tn.esprit.spring.kaddem.entities.Etudiant;
 
+import javax.persistence.LockModeType;
+import javax.persistence.QueryHint;
 import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE;
+import static org.hibernate.jpa.QueryHints.HINT_READONLY;
 
 @Repository
 public interface EtudiantRepository extends CrudRepository<Etudiant,Integer> {
-    public List<Etudiant> findEtudiantsByDepartement_IdDepart(Integer idDepart);
+    // response columns only, the eager departement is never loaded
+    String VUE = "SELECT new tn.esprit.spring.kaddem.dto.EtudiantVue(e.idEtudiant, e.nomE, e.prenomE, e.op) FROM Etudiant e";
+
+    @Query(VUE)
+    public List<EtudiantVue> findVues();
+
+    // whole table for services.IndexEtudiants, streamed by the MySQL driver
+    @QueryHints({@QueryHint(name = HINT_FETCH_SIZE, value = "" + Integer.MIN_VALUE),
+            @QueryHint(name = HINT_READONLY, value = "true")})
+    @Query(VUE)
+    public Stream<EtudiantVue> streamVues();
+
+    @Query(VUE + " WHERE e.idEtudiant = :idEtudiant")
+    public Optional<EtudiantVue> findVueById(@Param("idEtudiant") Integer idEtudiant);
+
+    // members of a team by increasing id, read through the join table without loading Equipe.etudiants
+    @Query("SELECT new tn.esprit.spring.kaddem.dto.EtudiantVue(e.idEtudiant, e.nomE, e.prenomE, e.op)"
+            + " FROM Equipe eq JOIN eq.etudiants e WHERE eq.idEquipe = :idEquipe AND e.idEtudiant > :apresId"
+            + " ORDER BY e.idEtudiant")
+    public List<EtudiantVue> findVuesParEquipeApres(@Param("idEquipe") Integer idEquipe, @Param("apresId") Integer apresId,
+                                                    Pageable pageable);
+
+    // served by idx_etudiant_departement, the foreign key column is compared without joining departement
+    // a Slice reads one extra row to know if there is a next page instead of running a COUNT
+    @Query(VUE + " WHERE e.departement.idDepart = :idDepart ORDER BY e.idEtudiant")
+    public Slice<EtudiantVue> findVuesByDepartement(@Param("idDepart") Integer idDepart, Pageable pageable);
+
+    @Query("SELECT COUNT(e) FROM Etudiant e WHERE e.departement.idDepart = :idDepart")
+    public long countByDepartement(@Param("idDepart") Integer idDepart);
+
+    @Query("SELECT e.departement.idDepart FROM Etudiant e WHERE e.idEtudiant = :idEtudiant")
+    public Optional<Integer> findIdDepartement(@Param("idEtudiant") Integer idEtudiant);
 @Query("Select e From Etudiant e where e.nomE= :nomE and e.prenomE= :prenomE")
     public Etudiant findByNomEAndPrenomE(@Param("nomE") String nomE, @Param("prenomE") String prenomE);
+
+    // SELECT ... FOR UPDATE : concurrent contract assignments for the same student wait on this row
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("Select e From Etudiant e where e.nomE= :nomE and e.prenomE= :prenomE")
+    public Etudiant findForUpdateByNomEAndPrenomE(@Param("nomE") String nomE, @Param("prenomE") String prenomE);
 }
@@ -1,11 +1,25 @@
 package tn.esprit.spring.kaddem.repositories;
 
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.CrudRepository;
 import org.springframework.stereotype.Repository;
+import tn.esprit.spring.kaddem.entities.CacheRegions;
 import tn.esprit.spring.kaddem.entities.Universite;
 
+import javax.persistence.QueryHint;
+import java.util.List;
+
+import static org.hibernate.jpa.QueryHints.HINT_CACHEABLE;
+import static org.hibernate.jpa.QueryHints.HINT_CACHE_REGION;
+
 @Repository
 public interface UniversiteRepository extends CrudRepository<Universite,Integer> {
 
+    // query cache : the id list is cached, the rows themselves come from the entity region
+    @QueryHints({@QueryHint(name = HINT_CACHEABLE, value = "true"),
+            @QueryHint(name = HINT_CACHE_REGION, value = CacheRegions.REQUETES_REFERENCE)})
+    public List<Universite> findAll();
+
+
 
 }
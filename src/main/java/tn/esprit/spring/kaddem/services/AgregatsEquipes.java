@@ -0,0 +1,194 @@
+package tn.esprit.spring.kaddem.services;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Keeps equipe.nb_etudiants_qualifies : members holding a non-archived contract that ended on or before the
+ * threshold stored in equipe.seuil_qualification. The services report the students, contracts and teams they
+ * touch and only the teams concerned are recounted, within the caller's transaction (just before its commit)
+ * or at once outside of one.
+ * The threshold moves every day without any write : avancer() recounts the teams having a contract that
+ * crossed it since their last count, reconcilier() checks and repairs the counters behind the background job.
+ */
+@Slf4j
+@Component
+public class AgregatsEquipes {
+    // a contract qualifies once it ended more than one full year ago (difference_In_Years > 1 in the old loop)
+    static final int JOURS_CONTRAT_QUALIFIANT = 2 * 365;
+    static final int TAILLE_LOT = 1000;
+
+    private static final String QUALIFIES = "(SELECT COUNT(DISTINCT ee.etudiants_id_etudiant) FROM equipe_etudiants ee"
+            + " WHERE ee.equipe_id_equipe = e.id_equipe AND EXISTS (SELECT 1 FROM contrat c"
+            + " WHERE c.etudiant_id_etudiant = ee.etudiants_id_etudiant AND c.archive = false AND c.date_fin_contrat <= ?))";
+    private static final String RECOMPTER = "UPDATE equipe e SET nb_etudiants_qualifies = " + QUALIFIES
+            + ", seuil_qualification = ? WHERE ";
+    private static final String EQUIPES_DES_ETUDIANTS = "e.id_equipe IN (SELECT m.equipe_id_equipe FROM equipe_etudiants m"
+            + " WHERE m.etudiants_id_etudiant IN (%s))";
+    private static final String EQUIPES_DES_CONTRATS = "e.id_equipe IN (SELECT m.equipe_id_equipe FROM equipe_etudiants m"
+            + " JOIN contrat k ON k.etudiant_id_etudiant = m.etudiants_id_etudiant WHERE k.id_contrat IN (%s))";
+    // counted at another threshold, and a member's contract ended between the two
+    private static final String EQUIPES_EN_RETARD = "e.id_equipe BETWEEN ? AND ? AND (e.seuil_qualification IS NULL"
+            + " OR e.seuil_qualification > ? OR (e.seuil_qualification < ? AND EXISTS (SELECT 1 FROM equipe_etudiants m"
+            + " JOIN contrat k ON k.etudiant_id_etudiant = m.etudiants_id_etudiant WHERE m.equipe_id_equipe = e.id_equipe"
+            + " AND k.archive = false AND k.date_fin_contrat > e.seuil_qualification AND k.date_fin_contrat <= ?)))";
+
+    private final JdbcTemplate jdbcTemplate;
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    public AgregatsEquipes(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    public static LocalDate seuil(LocalDate jour) {
+        return jour.minusDays(JOURS_CONTRAT_QUALIFIANT);
+    }
+
+    public void etudiantsModifies(Integer... idsEtudiants) {
+        enregistrer(Arrays.asList(idsEtudiants), Collections.emptyList(), Collections.emptyList());
+    }
+
+    public void contratsModifies(Collection<Integer> idsContrats) {
+        enregistrer(Collections.emptyList(), idsContrats, Collections.emptyList());
+    }
+
+    public void equipesModifiees(Collection<Integer> idsEquipes) {
+        enregistrer(Collections.emptyList(), Collections.emptyList(), idsEquipes);
+    }
+
+    public void equipesModifiees(Integer... idsEquipes) {
+        equipesModifiees(Arrays.asList(idsEquipes));
+    }
+
+    // read before deleting a student : the memberships are gone afterwards
+    public List<Integer> equipesDe(Integer idEtudiant) {
+        return jdbcTemplate.queryForList("SELECT equipe_id_equipe FROM equipe_etudiants WHERE etudiants_id_etudiant = ?",
+                Integer.class, idEtudiant);
+    }
+
+    // brings the teams of [idDebut, idFin] to today's threshold, returns the number of teams recounted
+    public int avancer(int idDebut, int idFin) {
+        java.sql.Date seuil = java.sql.Date.valueOf(seuil(LocalDate.now()));
+        int recomptees = jdbcTemplate.update(RECOMPTER + EQUIPES_EN_RETARD, seuil, seuil, idDebut, idFin, seuil, seuil, seuil);
+        // no contract crossed the threshold for the others : their counts hold at the new one
+        jdbcTemplate.update("UPDATE equipe SET seuil_qualification = ? WHERE id_equipe BETWEEN ? AND ?"
+                + " AND seuil_qualification < ?", seuil, idDebut, idFin, seuil);
+        return recomptees;
+    }
+
+    public int toutRecompter() {
+        java.sql.Date seuil = java.sql.Date.valueOf(seuil(LocalDate.now()));
+        return jdbcTemplate.update(RECOMPTER + "1 = 1", seuil, seuil);
+    }
+
+    // recounts [idDebut, idFin] from scratch and repairs the counters that drifted, returns the number repaired
+    public int reconcilier(int idDebut, int idFin) {
+        java.sql.Date seuil = java.sql.Date.valueOf(seuil(LocalDate.now()));
+        List<Map<String, Object>> lignes = jdbcTemplate.queryForList("SELECT e.id_equipe, e.nb_etudiants_qualifies,"
+                + " e.seuil_qualification, " + QUALIFIES + " AS exact FROM equipe e WHERE e.id_equipe BETWEEN ? AND ?",
+                seuil, idDebut, idFin);
+        List<Object[]> reparations = new ArrayList<>();
+        List<Object[]> premiersComptes = new ArrayList<>();
+        for (Map<String, Object> ligne : lignes) {
+            Object idEquipe = ligne.get("id_equipe");
+            int stocke = ((Number) ligne.get("nb_etudiants_qualifies")).intValue();
+            int exact = ((Number) ligne.get("exact")).intValue();
+            Object seuilStocke = ligne.get("seuil_qualification");
+            if (seuilStocke == null) {
+                premiersComptes.add(new Object[]{exact, seuil, idEquipe});
+            } else if (stocke != exact || !seuil.toString().equals(seuilStocke.toString())) {
+                if (seuil.toString().equals(seuilStocke.toString())) {
+                    log.warn("Equipe {} : {} etudiant(s) qualifie(s) stocke(s), {} reel(s)", idEquipe, stocke, exact);
+                }
+                reparations.add(new Object[]{exact, seuil, idEquipe, stocke, seuilStocke});
+            }
+        }
+        // guarded by the values read : a team recounted by a write since then is left alone
+        return appliquees(jdbcTemplate.batchUpdate("UPDATE equipe SET nb_etudiants_qualifies = ?, seuil_qualification = ?"
+                + " WHERE id_equipe = ? AND nb_etudiants_qualifies = ? AND seuil_qualification = ?", reparations))
+                + appliquees(jdbcTemplate.batchUpdate("UPDATE equipe SET nb_etudiants_qualifies = ?, seuil_qualification = ?"
+                + " WHERE id_equipe = ? AND seuil_qualification IS NULL", premiersComptes));
+    }
+
+    private static int appliquees(int[] resultats) {
+        return (int) Arrays.stream(resultats).filter(n -> n != 0).count();
+    }
+
+    private void enregistrer(Collection<Integer> etudiants, Collection<Integer> contrats, Collection<Integer> equipes) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            Lot lot = new Lot();
+            lot.ajouter(etudiants, contrats, equipes);
+            lot.appliquer();
+            return;
+        }
+        Lot lot = (Lot) TransactionSynchronizationManager.getResource(this);
+        if (lot == null) {
+            lot = new Lot();
+            TransactionSynchronizationManager.bindResource(this, lot);
+            TransactionSynchronizationManager.registerSynchronization(lot);
+        }
+        lot.ajouter(etudiants, contrats, equipes);
+    }
+
+    // what one transaction touched, recounted once before it commits
+    private class Lot implements TransactionSynchronization {
+        private final Set<Integer> etudiants = new LinkedHashSet<>();
+        private final Set<Integer> contrats = new LinkedHashSet<>();
+        private final Set<Integer> equipes = new LinkedHashSet<>();
+
+        void ajouter(Collection<Integer> idsEtudiants, Collection<Integer> idsContrats, Collection<Integer> idsEquipes) {
+            idsEtudiants.stream().filter(Objects::nonNull).forEach(etudiants::add);
+            idsContrats.stream().filter(Objects::nonNull).forEach(contrats::add);
+            idsEquipes.stream().filter(Objects::nonNull).forEach(equipes::add);
+        }
+
+        @Override
+        public void beforeCommit(boolean readOnly) {
+            // the JPA changes of the transaction must be visible to the JDBC recount
+            entityManager.flush();
+            appliquer();
+        }
+
+        @Override
+        public void afterCompletion(int status) {
+            TransactionSynchronizationManager.unbindResourceIfPossible(AgregatsEquipes.this);
+        }
+
+        void appliquer() {
+            java.sql.Date seuil = java.sql.Date.valueOf(seuil(LocalDate.now()));
+            recompter(etudiants, EQUIPES_DES_ETUDIANTS, seuil);
+            recompter(contrats, EQUIPES_DES_CONTRATS, seuil);
+            recompter(equipes, "e.id_equipe IN (%s)", seuil);
+        }
+
+        private void recompter(Set<Integer> ids, String condition, java.sql.Date seuil) {
+            List<Integer> liste = new ArrayList<>(ids);
+            for (int i = 0; i < liste.size(); i += TAILLE_LOT) {
+                List<Integer> lot = liste.subList(i, Math.min(i + TAILLE_LOT, liste.size()));
+                List<Object> parametres = new ArrayList<>(lot.size() + 2);
+                parametres.add(seuil);
+                parametres.add(seuil);
+                parametres.addAll(lot);
+                String marqueurs = String.join(", ", Collections.nCopies(lot.size(), "?"));
+                jdbcTemplate.update(RECOMPTER + String.format(condition, marqueurs), parametres.toArray());
+            }
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package tn.esprit.spring.kaddem.services;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import lombok.AllArgsConstructor;
+import lombok.EqualsAndHashCode;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import tn.esprit.spring.kaddem.dto.CacheRegionStat;
+import tn.esprit.spring.kaddem.dto.EtudiantVue;
+import tn.esprit.spring.kaddem.dto.OffsetPage;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Bounded in-process cache of the students-by-departement pages and head counts. Every key carries the
+ * generation of its departement : a student write bumps the generations of the departements it touches after
+ * commit and drops their entries, so a page loaded from a snapshot older than the write is stored under a
+ * generation nobody asks for anymore. Local to this JVM, like VersionsEntites.
+ */
+@Component
+public class CacheEtudiantsDepartement {
+	public static final String PAGES = "etudiants-departement";
+	public static final String EFFECTIFS = "effectifs-departement";
+
+	private final Cache<Cle, OffsetPage<EtudiantVue>> pages;
+	private final Cache<Cle, Long> effectifs;
+	private final Map<Integer, AtomicLong> generations = new ConcurrentHashMap<>();
+	// bumped by toutInvalider, also covers the departements that have no counter yet
+	private final AtomicLong generationGlobale = new AtomicLong();
+
+	public CacheEtudiantsDepartement(@Value("${kaddem.cache.etudiants-departement.pages-max:2000}") long pagesMax,
+									 @Value("${kaddem.cache.etudiants-departement.effectifs-max:1000}") long effectifsMax,
+									 @Value("${kaddem.cache.etudiants-departement.expiration:10m}") Duration expiration) {
+		pages = Caffeine.newBuilder().maximumSize(pagesMax).expireAfterWrite(expiration).recordStats().build();
+		effectifs = Caffeine.newBuilder().maximumSize(effectifsMax).expireAfterWrite(expiration).recordStats().build();
+	}
+
+	public OffsetPage<EtudiantVue> page(Integer idDepart, int page, int taille, Supplier<OffsetPage<EtudiantVue>> chargement){
+		return pages.get(new Cle(idDepart, generation(idDepart), page, taille), cle -> chargement.get());
+	}
+
+	public long effectif(Integer idDepart, Supplier<Long> chargement){
+		return effectifs.get(new Cle(idDepart, generation(idDepart), 0, 0), cle -> chargement.get());
+	}
+
+	// null ids (students without departement) are ignored
+	public void invalider(Integer... idDeparts){
+		List<Integer> ids = Arrays.asList(idDeparts);
+		apresCommit(() -> ids.stream().filter(Objects::nonNull).distinct().forEach(id -> {
+			generations.computeIfAbsent(id, d -> new AtomicLong()).incrementAndGet();
+			pages.asMap().keySet().removeIf(cle -> cle.idDepart.equals(id));
+			effectifs.asMap().keySet().removeIf(cle -> cle.idDepart.equals(id));
+		}));
+	}
+
+	// writes that bypass EtudiantServiceImpl (imports)
+	public void toutInvalider(){
+		apresCommit(() -> {
+			generationGlobale.incrementAndGet();
+			pages.invalidateAll();
+			effectifs.invalidateAll();
+		});
+	}
+
+	public List<CacheRegionStat> statistiques(){
+		return List.of(statistique(PAGES, pages), statistique(EFFECTIFS, effectifs));
+	}
+
+	private long generation(Integer idDepart){
+		AtomicLong generation = generations.get(idDepart);
+		return generationGlobale.get() + (generation == null ? 0 : generation.get());
+	}
+
+	private static CacheRegionStat statistique(String nom, Cache<?, ?> cache){
+		CacheStats s = cache.stats();
+		return new CacheRegionStat(nom, s.hitCount(), s.missCount(), s.loadCount(), cache.estimatedSize());
+	}
+
+	private static void apresCommit(Runnable invalidation){
+		if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+			invalidation.run();
+			return;
+		}
+		TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+			@Override
+			public void afterCommit() {
+				invalidation.run();
+			}
+		});
+	}
+
+	@EqualsAndHashCode
+	@AllArgsConstructor
+	private static final class Cle {
+		private final Integer idDepart;
+		private final long generation;
+		private final int page;
+		private final int taille;
+	}
+}
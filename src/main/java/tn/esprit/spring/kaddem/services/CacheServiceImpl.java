@@ -0,0 +1,50 @@
+package tn.esprit.spring.kaddem.services;
+
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.CacheRegionStatistics;
+import org.hibernate.stat.Statistics;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import tn.esprit.spring.kaddem.dto.CacheRegionStat;
+import tn.esprit.spring.kaddem.dto.CacheStatistiques;
+import tn.esprit.spring.kaddem.entities.CacheRegions;
+import tn.esprit.spring.kaddem.entities.Universite;
+
+import javax.persistence.EntityManagerFactory;
+import java.util.ArrayList;
+import java.util.List;
+
+@Slf4j
+@Service
+public class CacheServiceImpl implements ICacheService {
+	@Autowired
+	EntityManagerFactory entityManagerFactory;
+	@Autowired
+	CacheEtudiantsDepartement cacheEtudiantsDepartement;
+
+	public CacheStatistiques retrieveStatistiques(){
+		Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+		List<CacheRegionStat> regions = new ArrayList<>();
+		for (String region : CacheRegions.TOUTES) {
+			try {
+				CacheRegionStatistics s = statistics.getCacheRegionStatistics(region);
+				if (s != null) {
+					regions.add(new CacheRegionStat(region, s.getHitCount(), s.getMissCount(), s.getPutCount(),
+							s.getElementCountInMemory()));
+				}
+			} catch (IllegalArgumentException e) {
+				log.debug("Region de cache inconnue : {}", region);
+			}
+		}
+		regions.addAll(cacheEtudiantsDepartement.statistiques());
+		return new CacheStatistiques(statistics.getSecondLevelCacheHitCount(), statistics.getSecondLevelCacheMissCount(),
+				statistics.getQueryCacheHitCount(), statistics.getQueryCacheMissCount(), regions);
+	}
+
+	// Universite.departements is cached as a list of ids, which a departement delete does not touch
+	public void evictDepartementsDesUniversites(){
+		entityManagerFactory.unwrap(SessionFactory.class).getCache()
+				.evictCollectionData(Universite.class.getName() + ".departements");
+	}
+}
@@ -1,18 +1,35 @@
 package tn.esprit.spring.kaddem.services;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import lombok.extern.slf4j.Slf4j;
+import tn.esprit.spring.kaddem.dto.ChampsFiltre;
+import tn.esprit.spring.kaddem.dto.ChiffreAffaireDetail;
+import tn.esprit.spring.kaddem.dto.ChiffreAffaireSpecialite;
+import tn.esprit.spring.kaddem.dto.ContratSpecialiteStat;
+import tn.esprit.spring.kaddem.dto.ContratVue;
+import tn.esprit.spring.kaddem.dto.KeysetPage;
 import tn.esprit.spring.kaddem.entities.Contrat;
 import tn.esprit.spring.kaddem.entities.Etudiant;
 import tn.esprit.spring.kaddem.entities.Specialite;
 import tn.esprit.spring.kaddem.repositories.ContratRepository;
 import tn.esprit.spring.kaddem.repositories.EtudiantRepository;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.time.LocalDate;
+import java.util.ArrayList;
 import java.util.Date;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Set;
+import java.util.stream.Stream;
 
 @Slf4j
 @Service
@@ -21,18 +38,94 @@ public class ContratServiceImpl implements IContratService{
 ContratRepository contratRepository;
 @Autowired
 	EtudiantRepository etudiantRepository;
+	@Autowired
+	ObjectMapper objectMapper;
+	@Autowired
+	EcheancierContrats echeancierContrats;
+	@Autowired
+	VersionsEntites versionsEntites;
+	@Autowired
+	ContratSnapshot contratSnapshot;
+	@Autowired
+	AgregatsEquipes agregatsEquipes;
+	@Autowired
+	RequetesGroupees requetesGroupees;
+
+	static final int TAILLE_PAGE_MAX = 500;
+	static final int FLUSH_TOUTES_LES_LIGNES = 100;
+	public static final int JOURS_AVANT_ECHEANCE = 15;
+	static final int NB_CONTRATS_ACTIFS_MAX = 4;
+
+	@Transactional(readOnly = true)
 	public List<Contrat> retrieveAllContrats(){
 		return (List<Contrat>) contratRepository.findAll();
 	}
 
+	@Transactional(readOnly = true)
+	public List<ContratVue> retrieveAllContratVues(){
+		return contratRepository.findVues();
+	}
+
+	// concurrent identical lookups share one read, see RequetesGroupees
+	public ContratVue retrieveContratVue(Integer idContrat){
+		return requetesGroupees.executer("contrat", versionsEntites.etag(Contrat.class, idContrat, Etudiant.class),
+				() -> contratRepository.findVueById(idContrat).orElse(null));
+	}
+
+	@Transactional(readOnly = true)
+	public KeysetPage<ContratVue> retrieveContratsPage(String curseur, Specialite specialite, Boolean archive, int taille){
+		int tailleEffective = Math.max(1, Math.min(taille, TAILLE_PAGE_MAX));
+		Integer apresId = KeysetPage.decodeCursor(curseur);
+		List<ContratVue> contrats = contratRepository.findPageApres(apresId, specialite, archive, PageRequest.of(0, tailleEffective));
+		String suivant = contrats.size() < tailleEffective ? null
+				: KeysetPage.encodeCursor(contrats.get(contrats.size() - 1).getIdContrat());
+		return new KeysetPage<>(contrats, suivant, contrats.size());
+	}
+
+	@Transactional(readOnly = true)
+	public void streamContrats(String curseur, Specialite specialite, Boolean archive, Set<String> champs, OutputStream out){
+		Integer apresId = KeysetPage.decodeCursor(curseur);
+		// constructor expression rows are not managed : the persistence context stays empty whatever the table size
+		ObjectWriter writer = objectMapper.writer(ChampsFiltre.provider(champs));
+		try (Stream<ContratVue> contrats = contratRepository.streamApres(apresId, specialite, archive)) {
+			int n = 0;
+			for (Iterator<ContratVue> it = contrats.iterator(); it.hasNext(); ) {
+				out.write(writer.writeValueAsBytes(it.next()));
+				out.write('\n');
+				if (++n % FLUSH_TOUTES_LES_LIGNES == 0) {
+					out.flush();
+				}
+			}
+			out.flush();
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
 	public Contrat updateContrat (Contrat  ce){
-		return contratRepository.save(ce);
+		// the contract may move to another student : both students' teams are recounted
+		Integer ancienEtudiant = ce.getIdContrat() == null ? null : contratRepository.findIdEtudiant(ce.getIdContrat());
+		Date ancienneFin = ce.getIdContrat() == null ? null : contratRepository.findDateFinContrat(ce.getIdContrat());
+		Contrat contrat = contratRepository.save(ce);
+		agregatsEquipes.etudiantsModifies(ancienEtudiant, idEtudiant(contrat));
+		echeancierContrats.planifier(contrat, ancienneFin);
+		contratSnapshot.appliquer(contrat);
+		versionsEntites.modifier(Contrat.class, contrat.getIdContrat());
+		etudiantEnCascade(contrat);
+		return contrat;
 	}
 
 	public  Contrat addContrat (Contrat ce){
-		return contratRepository.save(ce);
+		Contrat contrat = contratRepository.save(ce);
+		agregatsEquipes.etudiantsModifies(idEtudiant(contrat));
+		echeancierContrats.planifier(contrat, null);
+		contratSnapshot.appliquer(contrat);
+		versionsEntites.modifier(Contrat.class, contrat.getIdContrat());
+		etudiantEnCascade(contrat);
+		return contrat;
 	}
 
+	@Transactional(readOnly = true)
 	public Contrat retrieveContrat (Integer  idContrat){
 		return contratRepository.findById(idContrat).orElse(null);
 	}
@@ -40,75 +133,108 @@ ContratRepository contratRepository;
 	public  void removeContrat(Integer idContrat){
 		Contrat c=retrieveContrat(idContrat);
 		contratRepository.delete(c);
+		agregatsEquipes.etudiantsModifies(idEtudiant(c));
+		contratSnapshot.retirer(idContrat);
+		versionsEntites.modifier(Contrat.class, idContrat);
 	}
 
 
 
+	@Transactional
 	public Contrat affectContratToEtudiant (Integer idContrat, String nomE, String prenomE){
-		Etudiant e=etudiantRepository.findByNomEAndPrenomE(nomE, prenomE);
+		Etudiant e=etudiantRepository.findForUpdateByNomEAndPrenomE(nomE, prenomE);
 		Contrat ce=contratRepository.findByIdContrat(idContrat);
-		Set<Contrat> contrats= e.getContrats();
-		Integer nbContratssActifs=0;
-		if (contrats.size()!=0) {
-			for (Contrat contrat : contrats) {
-				if (((contrat.getArchive())!=null)&& ((contrat.getArchive())!=false))  {
-					nbContratssActifs++;
-				}
-			}
+		if (e == null || ce == null) {
+			return ce;
+		}
+		boolean dejaAffecte = ce.getEtudiant() != null && e.getIdEtudiant().equals(ce.getEtudiant().getIdEtudiant());
+		boolean actif = !Boolean.TRUE.equals(ce.getArchive());
+		// the count runs while holding the student row lock, so two parallel requests cannot both pass it
+		long nbActifs = !dejaAffecte && actif ? contratRepository.countContratsActifs(e.getIdEtudiant()) : 0;
+		if (nbActifs >= NB_CONTRATS_ACTIFS_MAX) {
+			log.info("Etudiant {} {} : {} contrats actifs, affectation du contrat {} refusée", nomE, prenomE,
+					nbActifs, idContrat);
+			return ce;
 		}
-		if (nbContratssActifs<=4){
+		Integer ancienEtudiant = idEtudiant(ce);
 		ce.setEtudiant(e);
-		contratRepository.save(ce);}
+		contratRepository.save(ce);
+		agregatsEquipes.etudiantsModifies(ancienEtudiant, e.getIdEtudiant());
+		versionsEntites.modifier(Contrat.class, idContrat);
 		return ce;
 	}
+
+	// Contrat.etudiant cascades : the student sent with the contract was saved along with it
+	private void etudiantEnCascade(Contrat contrat){
+		if (contrat.getEtudiant() != null) {
+			versionsEntites.modifier(Etudiant.class, contrat.getEtudiant().getIdEtudiant());
+		}
+	}
+
+	private static Integer idEtudiant(Contrat c){
+		return c.getEtudiant() == null ? null : c.getEtudiant().getIdEtudiant();
+	}
+	@Transactional(readOnly = true)
 	public 	Integer nbContratsValides(Date startDate, Date endDate){
+		if (contratSnapshot.isActif()) {
+			return contratSnapshot.nbContratsValides(startDate, endDate);
+		}
 		return contratRepository.getnbContratsValides(startDate, endDate);
 	}
 
-	public void retrieveAndUpdateStatusContrat(){
-		List<Contrat>contrats=contratRepository.findAll();
-		List<Contrat>contrats15j=null;
-		List<Contrat>contratsAarchiver=null;
-		for (Contrat contrat : contrats) {
-			Date dateSysteme = new Date();
-			if (contrat.getArchive()==false) {
-				long difference_In_Time = dateSysteme.getTime() - contrat.getDateFinContrat().getTime();
-				long difference_In_Days = (difference_In_Time / (1000 * 60 * 60 * 24)) % 365;
-				if (difference_In_Days==15){
-					contrats15j.add(contrat);
-					log.info(" Contrat : " + contrat);
-				}
-				if (difference_In_Days==0) {
-					contratsAarchiver.add(contrat);
-					contrat.setArchive(true);
-					contratRepository.save(contrat);
-				}
-			}
-		}
+	// every contract at once, reporting the end day entering the notice window today
+	public int retrieveAndUpdateStatusContrat(){
+		LocalDate aujourdhui = LocalDate.now();
+		return retrieveAndUpdateStatusContrat(aujourdhui.plusDays(JOURS_AVANT_ECHEANCE - 1L), Integer.MIN_VALUE,
+				Integer.MAX_VALUE);
+	}
+
+	// contracts whose id is in [idDebut, idFin] only, for the partitions of jobs.JobEcheancesContrats
+	public int retrieveAndUpdateStatusContrat(LocalDate prevenusJusquA, int idDebut, int idFin){
+		return echeancierContrats.traiterEcheances(LocalDate.now(), prevenusJusquA, idDebut, idFin);
 	}
+	@Transactional(readOnly = true)
 	public float getChiffreAffaireEntreDeuxDates(Date startDate, Date endDate){
+		return getChiffreAffaireDetail(startDate, endDate).getTotal();
+	}
+
+	@Transactional(readOnly = true)
+	public ChiffreAffaireDetail getChiffreAffaireDetail(Date startDate, Date endDate){
 		float difference_In_Time = endDate.getTime() - startDate.getTime();
 		float difference_In_Days = (difference_In_Time / (1000 * 60 * 60 * 24)) % 365;
 		float difference_In_months =difference_In_Days/30;
-        List<Contrat> contrats=contratRepository.findAll();
+		List<ChiffreAffaireSpecialite> parSpecialite = new ArrayList<>();
 		float chiffreAffaireEntreDeuxDates=0;
-		for (Contrat contrat : contrats) {
-			if (contrat.getSpecialite()== Specialite.IA){
-				chiffreAffaireEntreDeuxDates+=(difference_In_months*300);
-			} else if (contrat.getSpecialite()== Specialite.CLOUD) {
-				chiffreAffaireEntreDeuxDates+=(difference_In_months*400);
-			}
-			else if (contrat.getSpecialite()== Specialite.RESEAUX) {
-				chiffreAffaireEntreDeuxDates+=(difference_In_months*350);
-			}
-			else //if (contrat.getSpecialite()== Specialite.SECURITE)
-			 {
-				 chiffreAffaireEntreDeuxDates+=(difference_In_months*450);
-			}
+		List<ContratSpecialiteStat> stats = contratSnapshot.isActif()
+				? contratSnapshot.statistiquesParSpecialite(startDate, endDate)
+				: contratRepository.statistiquesParSpecialite(startDate, endDate);
+		for (ContratSpecialiteStat stat : stats) {
+			float chiffreAffaire = stat.getNbContrats() * difference_In_months * tarifMensuel(stat.getSpecialite());
+			parSpecialite.add(new ChiffreAffaireSpecialite(stat.getSpecialite(), stat.getNbContrats(),
+					stat.getMontantTotal(), chiffreAffaire));
+			chiffreAffaireEntreDeuxDates += chiffreAffaire;
 		}
-		return chiffreAffaireEntreDeuxDates;
+		return new ChiffreAffaireDetail(chiffreAffaireEntreDeuxDates, parSpecialite);
+	}
 
+	public ModeAnalytique getModeAnalytique(){
+		return contratSnapshot.getMode();
+	}
+
+	public ModeAnalytique changerModeAnalytique(ModeAnalytique mode){
+		return contratSnapshot.changerMode(mode);
+	}
 
+	static int tarifMensuel(Specialite specialite){
+		if (specialite == Specialite.IA) {
+			return 300;
+		} else if (specialite == Specialite.RESEAUX) {
+			return 350;
+		} else if (specialite == Specialite.CLOUD) {
+			return 400;
+		}
+		// SECURITE, and contracts without specialite as before
+		return 450;
 	}
 
 
@@ -0,0 +1,322 @@
+package tn.esprit.spring.kaddem.services;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import tn.esprit.spring.kaddem.dto.ContratColonnes;
+import tn.esprit.spring.kaddem.dto.ContratSpecialiteStat;
+import tn.esprit.spring.kaddem.entities.Contrat;
+import tn.esprit.spring.kaddem.entities.Specialite;
+import tn.esprit.spring.kaddem.repositories.ContratRepository;
+
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Stream;
+
+/**
+ * Columnar copy of the contract table for the date-range analytics (nbContratsValides, chiffre d'affaire),
+ * used when the mode is SNAPSHOT. Slot i of each column describes contract i (the ids are IDENTITY values,
+ * hence dense), dates are epoch days and a missing date gets a sentinel no window can match, the same way
+ * NULL never satisfies BETWEEN. There is no index : every query is a full O(n) scan of all the slots, free ones
+ * included, whatever the width of its window. The scan is a plain loop over primitive arrays, split in halves
+ * on the common fork/join pool above SEUIL_PARALLELE slots, under the read lock, so writers wait for it. What it
+ * saves over BASE is the round trip and the row reads, not the work per contract. ContratServiceImpl, the
+ * expiry job and the imports keep it current ; in BASE mode nothing is held in memory.
+ */
+@Slf4j
+@Component
+public class ContratSnapshot {
+	static final int SEUIL_PARALLELE = 1 << 16;
+	static final int TAILLE_INITIALE = 1024;
+	static final int SANS_DEBUT = Integer.MAX_VALUE;
+	static final int SANS_FIN = Integer.MIN_VALUE;
+	private static final Specialite[] SPECIALITES = Specialite.values();
+	// group of the contracts without specialite, after the enum values
+	private static final int SANS_SPECIALITE = SPECIALITES.length;
+
+	@Autowired
+	ContratRepository contratRepository;
+	@Autowired
+	PlatformTransactionManager transactionManager;
+	@Value("${kaddem.analytique.mode:BASE}")
+	ModeAnalytique modeInitial;
+
+	private final ReentrantReadWriteLock verrou = new ReentrantReadWriteLock();
+	private volatile ModeAnalytique mode = ModeAnalytique.BASE;
+	// columns, null in BASE mode
+	private int[] debut;
+	private int[] fin;
+	private int[] montant;
+	private byte[] specialite;
+	private final BitSet archive = new BitSet();
+	private int nbSlots;
+
+	@EventListener(ApplicationReadyEvent.class)
+	public void demarrer(){
+		changerMode(modeInitial);
+	}
+
+	public ModeAnalytique getMode(){
+		return mode;
+	}
+
+	public boolean isActif(){
+		return mode == ModeAnalytique.SNAPSHOT;
+	}
+
+	public ModeAnalytique changerMode(ModeAnalytique nouveauMode){
+		if (nouveauMode == ModeAnalytique.SNAPSHOT) {
+			charger();
+		} else {
+			// same write lock as charger : a scan never sees BASE with columns, or SNAPSHOT without them
+			verrou.writeLock().lock();
+			try {
+				mode = ModeAnalytique.BASE;
+				debut = fin = montant = null;
+				specialite = null;
+				archive.clear();
+				nbSlots = 0;
+			} finally {
+				verrou.writeLock().unlock();
+			}
+		}
+		return mode;
+	}
+
+	// rebuilds the columns from the table, used after writes that bypass ContratServiceImpl
+	public void recharger(){
+		if (isActif()) {
+			charger();
+		}
+	}
+
+	private void charger(){
+		TransactionTemplate lecture = new TransactionTemplate(transactionManager);
+		lecture.setReadOnly(true);
+		// writers wait for the whole load, so none of their changes is lost or applied on stale columns
+		verrou.writeLock().lock();
+		try {
+			allouer(TAILLE_INITIALE);
+			archive.clear();
+			nbSlots = 0;
+			lecture.executeWithoutResult(status -> {
+				try (Stream<ContratColonnes> colonnes = contratRepository.streamColonnes()) {
+					colonnes.forEach(c -> ecrire(c.getIdContrat(), c.getDateDebutContrat(), c.getDateFinContrat(),
+							c.getSpecialite(), c.getArchive(), c.getMontantContrat()));
+				}
+			});
+			mode = ModeAnalytique.SNAPSHOT;
+			log.info("Snapshot des contrats : {} slot(s), {} Ko", nbSlots, nbSlots * 13L / 1024);
+		} finally {
+			verrou.writeLock().unlock();
+		}
+	}
+
+	public void appliquer(Contrat contrat){
+		if (contrat == null || contrat.getIdContrat() == null) {
+			return;
+		}
+		verrou.writeLock().lock();
+		try {
+			if (debut != null) {
+				ecrire(contrat.getIdContrat(), contrat.getDateDebutContrat(), contrat.getDateFinContrat(),
+						contrat.getSpecialite(), contrat.getArchive(), contrat.getMontantContrat());
+			}
+		} finally {
+			verrou.writeLock().unlock();
+		}
+	}
+
+	public void retirer(Integer idContrat){
+		verrou.writeLock().lock();
+		try {
+			if (debut != null && idContrat != null && idContrat < nbSlots) {
+				vider(idContrat);
+			}
+		} finally {
+			verrou.writeLock().unlock();
+		}
+	}
+
+	public void archiver(Collection<Integer> ids){
+		verrou.writeLock().lock();
+		try {
+			if (debut != null) {
+				ids.stream().filter(id -> id < nbSlots).forEach(archive::set);
+			}
+		} finally {
+			verrou.writeLock().unlock();
+		}
+	}
+
+	// same predicate as ContratRepository.getnbContratsValides : (archive AND debut in window) OR fin in window
+	public int nbContratsValides(Date startDate, Date endDate){
+		int premier = premierJour(startDate);
+		int dernier = dernierJour(endDate);
+		verrou.readLock().lock();
+		try {
+			long[] resultat = new Scan(false, 0, nbSlots, premier, dernier).executer();
+			return (int) resultat[0];
+		} finally {
+			verrou.readLock().unlock();
+		}
+	}
+
+	// same rows as ContratRepository.statistiquesParSpecialite : contracts overlapping the window
+	public List<ContratSpecialiteStat> statistiquesParSpecialite(Date startDate, Date endDate){
+		int premier = premierJour(startDate);
+		int dernier = dernierJour(endDate);
+		long[] resultat;
+		verrou.readLock().lock();
+		try {
+			resultat = new Scan(true, 0, nbSlots, premier, dernier).executer();
+		} finally {
+			verrou.readLock().unlock();
+		}
+		List<ContratSpecialiteStat> stats = new ArrayList<>();
+		for (int k = 0; k <= SANS_SPECIALITE; k++) {
+			if (resultat[k] > 0) {
+				stats.add(new Stat(k == SANS_SPECIALITE ? null : SPECIALITES[k], resultat[k],
+						resultat[SANS_SPECIALITE + 1 + k]));
+			}
+		}
+		return stats;
+	}
+
+	private void ecrire(int id, Date dateDebut, Date dateFin, Specialite spec, Boolean archiveContrat, Integer montantContrat){
+		if (id >= debut.length) {
+			allouer(Math.max(id + 1, debut.length + (debut.length >> 1)));
+		}
+		for (int i = nbSlots; i < id; i++) {
+			vider(i);
+		}
+		nbSlots = Math.max(nbSlots, id + 1);
+		debut[id] = dateDebut == null ? SANS_DEBUT : (int) EcheancierContrats.jour(dateDebut);
+		fin[id] = dateFin == null ? SANS_FIN : (int) EcheancierContrats.jour(dateFin);
+		specialite[id] = (byte) (spec == null ? SANS_SPECIALITE : spec.ordinal());
+		montant[id] = montantContrat == null ? 0 : montantContrat;
+		archive.set(id, Boolean.TRUE.equals(archiveContrat));
+	}
+
+	// a free slot (deleted contract or id gap) never matches any window
+	private void vider(int id){
+		debut[id] = SANS_DEBUT;
+		fin[id] = SANS_FIN;
+		specialite[id] = (byte) SANS_SPECIALITE;
+		montant[id] = 0;
+		archive.clear(id);
+	}
+
+	private void allouer(int taille){
+		if (debut == null) {
+			debut = new int[taille];
+			fin = new int[taille];
+			montant = new int[taille];
+			specialite = new byte[taille];
+		} else {
+			debut = Arrays.copyOf(debut, taille);
+			fin = Arrays.copyOf(fin, taille);
+			montant = Arrays.copyOf(montant, taille);
+			specialite = Arrays.copyOf(specialite, taille);
+		}
+	}
+
+	// the DATE column is compared with a timestamp parameter : a window bound with a time of day excludes that day
+	static int premierJour(Date date){
+		long jour = EcheancierContrats.jour(date);
+		return (int) (minuit(date) ? jour : jour + 1);
+	}
+
+	static int dernierJour(Date date){
+		return (int) EcheancierContrats.jour(date);
+	}
+
+	private static boolean minuit(Date date){
+		return date instanceof java.sql.Date
+				|| date.toInstant().atZone(ZoneId.systemDefault()).toLocalTime().equals(LocalTime.MIDNIGHT);
+	}
+
+	// [count] for nbContratsValides, [count per group..., montant per group...] for the statistics
+	private final class Scan extends RecursiveTask<long[]> {
+		private final boolean parSpecialite;
+		private final int de;
+		private final int a;
+		private final int premier;
+		private final int dernier;
+
+		Scan(boolean parSpecialite, int de, int a, int premier, int dernier) {
+			this.parSpecialite = parSpecialite;
+			this.de = de;
+			this.a = a;
+			this.premier = premier;
+			this.dernier = dernier;
+		}
+
+		long[] executer(){
+			return a - de <= SEUIL_PARALLELE ? compute() : invoke();
+		}
+
+		@Override
+		protected long[] compute(){
+			if (a - de > SEUIL_PARALLELE) {
+				int milieu = (de + a) >>> 1;
+				Scan gauche = new Scan(parSpecialite, de, milieu, premier, dernier);
+				gauche.fork();
+				long[] droite = new Scan(parSpecialite, milieu, a, premier, dernier).compute();
+				long[] resultat = gauche.join();
+				for (int k = 0; k < resultat.length; k++) {
+					resultat[k] += droite[k];
+				}
+				return resultat;
+			}
+			return parSpecialite ? statistiques() : compter();
+		}
+
+		private long[] compter(){
+			long n = 0;
+			for (int i = de; i < a; i++) {
+				int f = fin[i];
+				if ((f >= premier && f <= dernier)
+						|| (archive.get(i) && debut[i] >= premier && debut[i] <= dernier)) {
+					n++;
+				}
+			}
+			return new long[]{n};
+		}
+
+		private long[] statistiques(){
+			long[] resultat = new long[2 * (SANS_SPECIALITE + 1)];
+			for (int i = de; i < a; i++) {
+				if (debut[i] <= dernier && fin[i] >= premier) {
+					int k = specialite[i];
+					resultat[k]++;
+					resultat[SANS_SPECIALITE + 1 + k] += montant[i];
+				}
+			}
+			return resultat;
+		}
+	}
+
+	@Getter
+	@AllArgsConstructor
+	private static final class Stat implements ContratSpecialiteStat {
+		private final Specialite specialite;
+		private final Long nbContrats;
+		private final Long montantTotal;
+	}
+}
@@ -2,14 +2,17 @@ package tn.esprit.spring.kaddem.services;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import lombok.extern.slf4j.Slf4j;
+import tn.esprit.spring.kaddem.dto.DepartementVue;
 import tn.esprit.spring.kaddem.entities.Departement;
 import tn.esprit.spring.kaddem.entities.Equipe;
 import tn.esprit.spring.kaddem.repositories.ContratRepository;
 import tn.esprit.spring.kaddem.repositories.DepartementRepository;
 
 import java.util.List;
+import java.util.stream.Collectors;
 
 @Slf4j
 
@@ -17,24 +20,52 @@ import java.util.List;
 public class DepartementServiceImpl implements IDepartementService{
 	@Autowired
 	DepartementRepository departementRepository;
+	@Autowired
+	ICacheService cacheService;
+	@Autowired
+	VersionsEntites versionsEntites;
+	@Autowired
+	CacheEtudiantsDepartement cacheEtudiantsDepartement;
+	@Autowired
+	RequetesGroupees requetesGroupees;
+	@Transactional(readOnly = true)
 	public List<Departement> retrieveAllDepartements(){
 		return (List<Departement>) departementRepository.findAll();
 	}
 
+	// two columns served by the query and entity caches : mapping the cached entities costs no SQL
+	@Transactional(readOnly = true)
+	public List<DepartementVue> retrieveAllDepartementVues(){
+		return retrieveAllDepartements().stream().map(DepartementVue::de).collect(Collectors.toList());
+	}
+
+	public DepartementVue retrieveDepartementVue(Integer idDepart){
+		return requetesGroupees.executer("departement", versionsEntites.etag(Departement.class, idDepart),
+				() -> DepartementVue.de(retrieveDepartement(idDepart)));
+	}
+
 	public Departement addDepartement (Departement d){
-		return departementRepository.save(d);
+		Departement departement = departementRepository.save(d);
+		versionsEntites.modifier(Departement.class, departement.getIdDepart());
+		return departement;
 	}
 
 	public   Departement updateDepartement (Departement d){
-		return departementRepository.save(d);
+		Departement departement = departementRepository.save(d);
+		versionsEntites.modifier(Departement.class, departement.getIdDepart());
+		return departement;
 	}
 
+	@Transactional(readOnly = true)
 	public  Departement retrieveDepartement (Integer idDepart){
 		return departementRepository.findById(idDepart).get();
 	}
 	public  void deleteDepartement(Integer idDepartement){
 		Departement d=retrieveDepartement(idDepartement);
 		departementRepository.delete(d);
+		cacheService.evictDepartementsDesUniversites();
+		versionsEntites.modifier(Departement.class, idDepartement);
+		cacheEtudiantsDepartement.invalider(idDepartement);
 	}
 
 
@@ -0,0 +1,118 @@
+package tn.esprit.spring.kaddem.services;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import tn.esprit.spring.kaddem.dto.ContratEcheance;
+import tn.esprit.spring.kaddem.entities.Contrat;
+import tn.esprit.spring.kaddem.repositories.ContratRepository;
+
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Contract expiry, read from the table one id range at a time : traiterEcheances archives the non-archived
+ * contracts of the range ending today or before and reports the ones whose end day entered the 15 days notice
+ * window since the last run. jobs.JobEcheancesContrats spreads the ranges over the nodes once a day, and every
+ * node's writes are in the table, so a contract is archived whichever node wrote it. Nothing is held in memory :
+ * a contract written with its end day already inside the window is reported by planifier() after its commit.
+ */
+@Slf4j
+@Component
+public class EcheancierContrats {
+	static final int TAILLE_LOT_ARCHIVAGE = 1000;
+
+	@Autowired
+	ContratRepository contratRepository;
+	@Autowired
+	PlatformTransactionManager transactionManager;
+	@Autowired
+	VersionsEntites versionsEntites;
+	@Autowired
+	ContratSnapshot contratSnapshot;
+	@Autowired
+	AgregatsEquipes agregatsEquipes;
+
+	// the runs only report the days entering the window : a contract written with an end day inside it, new or
+	// moved there from ancienneFin, is reported here once its transaction commits
+	public void planifier(Contrat contrat, Date ancienneFin){
+		if (contrat == null || contrat.getIdContrat() == null || Boolean.TRUE.equals(contrat.getArchive())
+				|| contrat.getDateFinContrat() == null) {
+			return;
+		}
+		long jour = jour(contrat.getDateFinContrat());
+		long aujourdhui = LocalDate.now().toEpochDay();
+		if (jour > aujourdhui && jour <= aujourdhui + ContratServiceImpl.JOURS_AVANT_ECHEANCE
+				&& (ancienneFin == null || jour(ancienneFin) != jour)) {
+			Integer idContrat = contrat.getIdContrat();
+			apresCommit(() -> preavis(idContrat, jour));
+		}
+	}
+
+	// contracts of [idDebut, idFin] : archives those ending on or before aujourdhui, reports those ending after
+	// prevenusJusquA and within the notice window. Joins the caller's transaction, the chunk of ExecuteurJobs.
+	public int traiterEcheances(LocalDate aujourdhui, LocalDate prevenusJusquA, int idDebut, int idFin){
+		LocalDate finPreavis = aujourdhui.plusDays(ContratServiceImpl.JOURS_AVANT_ECHEANCE);
+		List<Integer> aArchiver = new ArrayList<>();
+		Map<Integer, Long> aPrevenir = new TreeMap<>();
+		for (ContratEcheance echeance : contratRepository.findEcheances(idDebut, idFin, java.sql.Date.valueOf(finPreavis))) {
+			long jour = jour(echeance.getDateFinContrat());
+			if (jour <= aujourdhui.toEpochDay()) {
+				aArchiver.add(echeance.getIdContrat());
+			} else if (jour > prevenusJusquA.toEpochDay()) {
+				aPrevenir.put(echeance.getIdContrat(), jour);
+			}
+		}
+
+		int nbArchives = 0;
+		TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+		for (int i = 0; i < aArchiver.size(); i += TAILLE_LOT_ARCHIVAGE) {
+			List<Integer> lot = new ArrayList<>(aArchiver.subList(i, Math.min(i + TAILLE_LOT_ARCHIVAGE, aArchiver.size())));
+			nbArchives += transaction.execute(status -> {
+				// an archived contract no longer qualifies its student : the teams are recounted in the same transaction
+				agregatsEquipes.contratsModifies(lot);
+				int archives = contratRepository.archiverContrats(lot);
+				apresCommit(() -> contratSnapshot.archiver(lot));
+				return archives;
+			});
+			versionsEntites.modifier(Contrat.class, lot);
+		}
+		apresCommit(() -> aPrevenir.forEach(this::preavis));
+		log.info("Statut des contrats {} à {} : {} archivé(s), {} à échéance dans {} jours ou moins", idDebut, idFin,
+				nbArchives, aPrevenir.size(), ContratServiceImpl.JOURS_AVANT_ECHEANCE);
+		return nbArchives + aPrevenir.size();
+	}
+
+	private void preavis(Integer idContrat, long jour){
+		log.info("Contrat {} : fin le {}", idContrat, LocalDate.ofEpochDay(jour));
+	}
+
+	private static void apresCommit(Runnable action){
+		if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+			action.run();
+			return;
+		}
+		TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+			@Override
+			public void afterCommit() {
+				action.run();
+			}
+		});
+	}
+
+	static long jour(Date date){
+		if (date instanceof java.sql.Date) {
+			return ((java.sql.Date) date).toLocalDate().toEpochDay();
+		}
+		return date.toInstant().atZone(ZoneId.systemDefault()).toLocalDate().toEpochDay();
+	}
+}
@@ -1,82 +1,183 @@
 package tn.esprit.spring.kaddem.services;
 
 import lombok.AllArgsConstructor;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
 
 import lombok.extern.slf4j.Slf4j;
-import tn.esprit.spring.kaddem.entities.Contrat;
+import org.springframework.transaction.annotation.Transactional;
+import tn.esprit.spring.kaddem.dto.EquipeEvolutionStat;
+import tn.esprit.spring.kaddem.dto.EquipeVue;
+import tn.esprit.spring.kaddem.dto.EtudiantVue;
+import tn.esprit.spring.kaddem.dto.KeysetPage;
+import tn.esprit.spring.kaddem.dto.PromotionEquipe;
 import tn.esprit.spring.kaddem.entities.Equipe;
-import tn.esprit.spring.kaddem.entities.Etudiant;
 import tn.esprit.spring.kaddem.entities.Niveau;
 import tn.esprit.spring.kaddem.repositories.EquipeRepository;
+import tn.esprit.spring.kaddem.repositories.EtudiantRepository;
 
-import java.util.Date;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.LinkedHashSet;
 import java.util.List;
-import java.util.Set;
+import java.util.Map;
+import java.util.NoSuchElementException;
 
 @Slf4j
 @AllArgsConstructor
 @Service
 public class EquipeServiceImpl implements IEquipeService{
 	EquipeRepository equipeRepository;
+	VersionsEntites versionsEntites;
+	AgregatsEquipes agregatsEquipes;
+	EtudiantRepository etudiantRepository;
+	JdbcTemplate jdbcTemplate;
+	RequetesGroupees requetesGroupees;
 
+	static final int NB_ETUDIANTS_PROMOTION = 3;
+	static final int TAILLE_LOT_MISE_A_JOUR = 1000;
+	static final int TAILLE_PAGE_MAX = 500;
+	// existing students that are not members yet : unknown ids and duplicates are skipped
+	static final String AJOUTER_MEMBRES = "INSERT INTO equipe_etudiants (equipe_id_equipe, etudiants_id_etudiant)"
+			+ " SELECT ?, e.id_etudiant FROM etudiant e WHERE e.id_etudiant IN (%s) AND NOT EXISTS (SELECT 1"
+			+ " FROM equipe_etudiants m WHERE m.equipe_id_equipe = ? AND m.etudiants_id_etudiant = e.id_etudiant)";
+	static final String RETIRER_MEMBRES = "DELETE FROM equipe_etudiants WHERE equipe_id_equipe = ?"
+			+ " AND etudiants_id_etudiant IN (%s)";
 
+	@Transactional(readOnly = true)
 	public List<Equipe> retrieveAllEquipes(){
 	return  (List<Equipe>) equipeRepository.findAll();
 	}
+	@Transactional(readOnly = true)
+	public List<EquipeVue> retrieveAllEquipeVues(){
+		return equipeRepository.findVues();
+	}
+
+	// the entity and its detail come from the second-level cache, cheaper than a projection query
+	public EquipeVue retrieveEquipeVue(Integer equipeId){
+		return requetesGroupees.executer("equipe", versionsEntites.etag(Equipe.class, equipeId),
+				() -> EquipeVue.de(retrieveEquipe(equipeId)));
+	}
+
 	public Equipe addEquipe(Equipe e){
-		return (equipeRepository.save(e));
+		Equipe equipe = equipeRepository.save(e);
+		agregatsEquipes.equipesModifiees(equipe.getIdEquipe());
+		versionsEntites.modifier(Equipe.class, equipe.getIdEquipe());
+		return equipe;
 	}
 
 	public  void deleteEquipe(Integer idEquipe){
 		Equipe e=retrieveEquipe(idEquipe);
 		equipeRepository.delete(e);
+		versionsEntites.modifier(Equipe.class, idEquipe);
 	}
 
+	@Transactional(readOnly = true)
 	public Equipe retrieveEquipe(Integer equipeId){
 		return equipeRepository.findById(equipeId).get();
 	}
 
 	public Equipe updateEquipe(Equipe e){
-	return (	equipeRepository.save(e));
+		Equipe equipe = equipeRepository.save(e);
+		agregatsEquipes.equipesModifiees(equipe.getIdEquipe());
+		versionsEntites.modifier(Equipe.class, equipe.getIdEquipe());
+		return equipe;
 	}
 
-	public void evoluerEquipes(){
-		List<Equipe> equipes = (List<Equipe>) equipeRepository.findAll();
-		for (Equipe equipe : equipes) {
-			if ((equipe.getNiveau().equals(Niveau.JUNIOR)) || (equipe.getNiveau().equals(Niveau.SENIOR))) {
-				List<Etudiant> etudiants = (List<Etudiant>) equipe.getEtudiants();
-				Integer nbEtudiantsAvecContratsActifs=0;
-				for (Etudiant etudiant : etudiants) {
-					Set<Contrat> contrats = etudiant.getContrats();
-					//Set<Contrat> contratsActifs=null;
-					for (Contrat contrat : contrats) {
-						Date dateSysteme = new Date();
-						long difference_In_Time = dateSysteme.getTime() - contrat.getDateFinContrat().getTime();
-						long difference_In_Years = (difference_In_Time / (1000l * 60 * 60 * 24 * 365));
-						if ((contrat.getArchive() == false) && (difference_In_Years > 1)) {
-							//	contratsActifs.add(contrat);
-							nbEtudiantsAvecContratsActifs++;
-							break;
-						}
-						if (nbEtudiantsAvecContratsActifs >= 3) break;
-					}
-				}
-					if (nbEtudiantsAvecContratsActifs >= 3){
-						if (equipe.getNiveau().equals(Niveau.JUNIOR)){
-							equipe.setNiveau(Niveau.SENIOR);
-							equipeRepository.save(equipe);
-							break;
-						}
-						if (equipe.getNiveau().equals(Niveau.SENIOR)){
-							equipe.setNiveau(Niveau.EXPERT);
-							equipeRepository.save(equipe);
-							break;
-						}
-				}
+	// the memberships are written in the join table directly, Equipe.etudiants is never loaded
+	@Transactional
+	public int ajouterEtudiants(Integer idEquipe, Collection<Integer> idsEtudiants){
+		return modifierMembres(idEquipe, idsEtudiants, AJOUTER_MEMBRES, true);
+	}
+
+	@Transactional
+	public int retirerEtudiants(Integer idEquipe, Collection<Integer> idsEtudiants){
+		return modifierMembres(idEquipe, idsEtudiants, RETIRER_MEMBRES, false);
+	}
+
+	private int modifierMembres(Integer idEquipe, Collection<Integer> idsEtudiants, String requete, boolean ajout){
+		if (!equipeRepository.existsById(idEquipe)) {
+			throw new NoSuchElementException("Equipe introuvable : " + idEquipe);
+		}
+		List<Integer> ids = new ArrayList<>(new LinkedHashSet<>(idsEtudiants));
+		int nbModifies = 0;
+		for (int i = 0; i < ids.size(); i += TAILLE_LOT_MISE_A_JOUR) {
+			List<Integer> lot = ids.subList(i, Math.min(i + TAILLE_LOT_MISE_A_JOUR, ids.size()));
+			List<Object> parametres = new ArrayList<>(lot.size() + 2);
+			parametres.add(idEquipe);
+			parametres.addAll(lot);
+			if (ajout) {
+				parametres.add(idEquipe);
 			}
+			nbModifies += jdbcTemplate.update(String.format(requete, String.join(", ", Collections.nCopies(lot.size(), "?"))),
+					parametres.toArray());
+		}
+		if (nbModifies > 0) {
+			agregatsEquipes.equipesModifiees(idEquipe);
+			versionsEntites.modifier(Equipe.class, idEquipe);
+		}
+		return nbModifies;
+	}
+
+	// keyset over the join table primary key (equipe_id_equipe, etudiants_id_etudiant)
+	@Transactional(readOnly = true)
+	public KeysetPage<EtudiantVue> retrieveEtudiantsEquipe(Integer idEquipe, String curseur, int taille){
+		int tailleEffective = Math.max(1, Math.min(taille, TAILLE_PAGE_MAX));
+		List<EtudiantVue> etudiants = etudiantRepository.findVuesParEquipeApres(idEquipe, KeysetPage.decodeCursor(curseur),
+				PageRequest.of(0, tailleEffective));
+		String suivant = etudiants.size() < tailleEffective ? null
+				: KeysetPage.encodeCursor(etudiants.get(etudiants.size() - 1).getIdEtudiant());
+		return new KeysetPage<>(etudiants, suivant, etudiants.size());
+	}
 
+	@Transactional(readOnly = true)
+	public long nbEtudiantsEquipe(Integer idEquipe){
+		return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM equipe_etudiants WHERE equipe_id_equipe = ?",
+				Long.class, idEquipe);
+	}
+
+	@Transactional
+	public void evoluerEquipes(){
+		evoluerEquipes(false);
+	}
+
+	@Transactional
+	public List<PromotionEquipe> evoluerEquipes(boolean simulation){
+		return evoluerEquipes(simulation, Integer.MIN_VALUE, Integer.MAX_VALUE);
+	}
+
+	// teams whose id is in [idDebut, idFin] only, for the partitions of jobs.JobEvolutionEquipes
+	@Transactional
+	public List<PromotionEquipe> evoluerEquipes(boolean simulation, int idDebut, int idFin){
+		// the counters move to today's threshold first, then the promotion is an index range scan
+		agregatsEquipes.avancer(idDebut, idFin);
+		List<PromotionEquipe> promotions = new ArrayList<>();
+		Map<Niveau, List<Integer>> idsParNiveau = new EnumMap<>(Niveau.class);
+		for (EquipeEvolutionStat stat : equipeRepository.findEquipesAPromouvoir(
+				EnumSet.of(Niveau.JUNIOR, Niveau.SENIOR), NB_ETUDIANTS_PROMOTION, idDebut, idFin)) {
+			promotions.add(new PromotionEquipe(stat.getIdEquipe(), stat.getNiveau(),
+					niveauSuivant(stat.getNiveau()), stat.getNbEtudiants()));
+			idsParNiveau.computeIfAbsent(stat.getNiveau(), n -> new ArrayList<>()).add(stat.getIdEquipe());
 		}
+		if (!simulation) {
+			// ids are all collected before any update, so a JUNIOR team never jumps two levels in one run
+			idsParNiveau.forEach((niveau, ids) -> {
+				for (int i = 0; i < ids.size(); i += TAILLE_LOT_MISE_A_JOUR) {
+					List<Integer> lot = ids.subList(i, Math.min(i + TAILLE_LOT_MISE_A_JOUR, ids.size()));
+					equipeRepository.changerNiveau(lot, niveau, niveauSuivant(niveau));
+					versionsEntites.modifier(Equipe.class, new ArrayList<>(lot));
+				}
+			});
+		}
+		log.info("Evolution des equipes{} : {} promotion(s)", simulation ? " (simulation)" : "", promotions.size());
+		return promotions;
+	}
 
+	static Niveau niveauSuivant(Niveau niveau){
+		return niveau == Niveau.JUNIOR ? Niveau.SENIOR : Niveau.EXPERT;
 	}
-}
\ No newline at end of file
+}
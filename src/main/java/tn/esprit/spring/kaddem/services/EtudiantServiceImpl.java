@@ -1,20 +1,21 @@
 package tn.esprit.spring.kaddem.services;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import lombok.extern.slf4j.Slf4j;
 
+import tn.esprit.spring.kaddem.dto.EtudiantVue;
+import tn.esprit.spring.kaddem.dto.OffsetPage;
 import tn.esprit.spring.kaddem.entities.Contrat;
 import tn.esprit.spring.kaddem.entities.Departement;
-import tn.esprit.spring.kaddem.entities.Equipe;
 import tn.esprit.spring.kaddem.entities.Etudiant;
 import tn.esprit.spring.kaddem.repositories.ContratRepository;
 import tn.esprit.spring.kaddem.repositories.DepartementRepository;
-import tn.esprit.spring.kaddem.repositories.EquipeRepository;
 import tn.esprit.spring.kaddem.repositories.EtudiantRepository;
 
-import javax.transaction.Transactional;
 import java.util.List;
 import java.util.Set;
 
@@ -25,47 +26,117 @@ public class EtudiantServiceImpl implements IEtudiantService{
 	EtudiantRepository etudiantRepository ;
 	@Autowired
 	ContratRepository contratRepository;
-	@Autowired
-	EquipeRepository equipeRepository;
     @Autowired
     DepartementRepository departementRepository;
+	@Autowired
+	VersionsEntites versionsEntites;
+	@Autowired
+	AgregatsEquipes agregatsEquipes;
+	@Autowired
+	IEquipeService equipeService;
+	@Autowired
+	CacheEtudiantsDepartement cacheEtudiantsDepartement;
+	@Autowired
+	RequetesGroupees requetesGroupees;
+	@Autowired
+	IndexEtudiants indexEtudiants;
+
+	static final int TAILLE_PAGE_MAX = 500;
+	static final int TAILLE_RECHERCHE_MAX = 100;
+	@Transactional(readOnly = true)
 	public List<Etudiant> retrieveAllEtudiants(){
 	return (List<Etudiant>) etudiantRepository.findAll();
 	}
 
+	@Transactional(readOnly = true)
+	public List<EtudiantVue> retrieveAllEtudiantVues(){
+		return etudiantRepository.findVues();
+	}
+
+	public EtudiantVue retrieveEtudiantVue(Integer idEtudiant){
+		return requetesGroupees.executer("etudiant", versionsEntites.etag(Etudiant.class, idEtudiant),
+				() -> etudiantRepository.findVueById(idEtudiant).get());
+	}
+
 	public Etudiant addEtudiant (Etudiant e){
-		return etudiantRepository.save(e);
+		Etudiant etudiant = etudiantRepository.save(e);
+		versionsEntites.modifier(Etudiant.class, etudiant.getIdEtudiant());
+		cacheEtudiantsDepartement.invalider(idDepartement(etudiant));
+		indexEtudiants.indexer(etudiant);
+		return etudiant;
 	}
 
 	public Etudiant updateEtudiant (Etudiant e){
-		return etudiantRepository.save(e);
+		Integer ancienDepartement = e.getIdEtudiant() == null ? null
+				: etudiantRepository.findIdDepartement(e.getIdEtudiant()).orElse(null);
+		Etudiant etudiant = etudiantRepository.save(e);
+		versionsEntites.modifier(Etudiant.class, etudiant.getIdEtudiant());
+		cacheEtudiantsDepartement.invalider(ancienDepartement, idDepartement(etudiant));
+		indexEtudiants.indexer(etudiant);
+		return etudiant;
 	}
 
+	@Transactional(readOnly = true)
 	public Etudiant retrieveEtudiant(Integer  idEtudiant){
 		return etudiantRepository.findById(idEtudiant).get();
 	}
 
 	public void removeEtudiant(Integer idEtudiant){
 	Etudiant e=retrieveEtudiant(idEtudiant);
+	List<Integer> equipes = agregatsEquipes.equipesDe(idEtudiant);
 	etudiantRepository.delete(e);
+	agregatsEquipes.equipesModifiees(equipes);
+	versionsEntites.modifier(Etudiant.class, idEtudiant);
+	cacheEtudiantsDepartement.invalider(idDepartement(e));
+	indexEtudiants.retirer(idEtudiant);
 	}
 
 	public void assignEtudiantToDepartement (Integer etudiantId, Integer departementId){
         Etudiant etudiant = etudiantRepository.findById(etudiantId).orElse(null);
         Departement departement = departementRepository.findById(departementId).orElse(null);
+        Integer ancienDepartement = idDepartement(etudiant);
         etudiant.setDepartement(departement);
         etudiantRepository.save(etudiant);
+        versionsEntites.modifier(Etudiant.class, etudiantId);
+        cacheEtudiantsDepartement.invalider(ancienDepartement, departementId);
 	}
 	@Transactional
 	public Etudiant addAndAssignEtudiantToEquipeAndContract(Etudiant e, Integer idContrat, Integer idEquipe){
 		Contrat c=contratRepository.findById(idContrat).orElse(null);
-		Equipe eq=equipeRepository.findById(idEquipe).orElse(null);
-		c.setEtudiant(e);
-		eq.getEtudiants().add(e);
-return e;
+		Integer ancienEtudiant = c.getEtudiant() == null ? null : c.getEtudiant().getIdEtudiant();
+		// saved first for its id : the membership is one join table row, the team's members are never loaded
+		Etudiant etudiant = etudiantRepository.save(e);
+		c.setEtudiant(etudiant);
+		equipeService.ajouterEtudiants(idEquipe, List.of(etudiant.getIdEtudiant()));
+		agregatsEquipes.etudiantsModifies(ancienEtudiant, etudiant.getIdEtudiant());
+		versionsEntites.modifier(Contrat.class, idContrat);
+		versionsEntites.modifier(Etudiant.class, etudiant.getIdEtudiant());
+		cacheEtudiantsDepartement.invalider(idDepartement(etudiant));
+		indexEtudiants.indexer(etudiant);
+return etudiant;
+	}
+
+	// pages and counts come from CacheEtudiantsDepartement, every student write above invalidates its departements.
+	// Behind the lazy connection proxy a cache hit never borrows a connection
+	@Transactional(readOnly = true)
+	public 	OffsetPage<EtudiantVue> getEtudiantsByDepartement (Integer idDepartement, int page, int taille){
+		int pageEffective = Math.max(0, page);
+		int tailleEffective = Math.max(1, Math.min(taille, TAILLE_PAGE_MAX));
+		return cacheEtudiantsDepartement.page(idDepartement, pageEffective, tailleEffective,
+				() -> OffsetPage.of(etudiantRepository.findVuesByDepartement(idDepartement, PageRequest.of(pageEffective, tailleEffective))));
+	}
+
+	@Transactional(readOnly = true)
+	public long getNbEtudiantsByDepartement(Integer idDepartement){
+		return cacheEtudiantsDepartement.effectif(idDepartement, () -> etudiantRepository.countByDepartement(idDepartement));
+	}
+
+	// served from IndexEtudiants, no query : k is capped at TAILLE_RECHERCHE_MAX
+	public List<EtudiantVue> rechercherEtudiants(String texte, int k){
+		return indexEtudiants.rechercher(texte, Math.min(k, TAILLE_RECHERCHE_MAX));
 	}
 
-	public 	List<Etudiant> getEtudiantsByDepartement (Integer idDepartement){
-return  etudiantRepository.findEtudiantsByDepartement_IdDepart((idDepartement));
+	private static Integer idDepartement(Etudiant e){
+		return e.getDepartement() == null ? null : e.getDepartement().getIdDepart();
 	}
 }
@@ -0,0 +1,225 @@
+package tn.esprit.spring.kaddem.services;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import tn.esprit.spring.kaddem.entities.Specialite;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.sql.Date;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Semaphore;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Reporting exports through plain JDBC : rows are read from a forward-only cursor (fetch size Integer.MIN_VALUE
+ * makes Connector/J stream them) and written one by one, nothing is held but the current row. The header, or
+ * the first rows, leave before the end of the query, and every row carries its id so an interrupted export is
+ * resumed with apres=<last id received>. Column names are those of the imports. An export keeps its connection
+ * for as long as the client takes to read it, so at most kaddem.export.simultanees-max of them run at once :
+ * the controllers reserve a slot before answering and a request over the cap gets a 503, the rest of the Hikari
+ * pool stays for the interactive requests and the jobs.
+ */
+@Slf4j
+@Service
+public class ExportServiceImpl implements IExportService {
+	static final String[] COLONNES_CONTRAT = {"idContrat", "dateDebutContrat", "dateFinContrat", "specialite", "archive",
+			"montantContrat", "idEtudiant", "nomE", "prenomE", "idDepartement"};
+	static final String SELECT_CONTRATS = "SELECT c.id_contrat, c.date_debut_contrat, c.date_fin_contrat, c.specialite,"
+			+ " c.archive, c.montant_contrat, e.id_etudiant, e.nom_e, e.prenom_e, e.departement_id_depart"
+			+ " FROM contrat c LEFT JOIN etudiant e ON e.id_etudiant = c.etudiant_id_etudiant WHERE c.id_contrat > ?";
+	static final String[] COLONNES_ETUDIANT = {"idEtudiant", "nomE", "prenomE", "op", "idDepartement"};
+	static final String SELECT_ETUDIANTS = "SELECT e.id_etudiant, e.nom_e, e.prenom_e, e.op, e.departement_id_depart"
+			+ " FROM etudiant e WHERE e.id_etudiant > ?";
+	static final int FLUSH_TOUTES_LES_LIGNES = 100;
+	static final int TAILLE_TAMPON = 8192;
+
+	private final JdbcTemplate curseur;
+	private final ObjectMapper objectMapper;
+	private final Semaphore exports;
+
+	public ExportServiceImpl(JdbcTemplate jdbcTemplate, ObjectMapper objectMapper,
+							 @Value("${kaddem.export.fetch-size:-2147483648}") int fetchSize,
+							 @Value("${kaddem.export.simultanees-max:3}") int simultaneesMax) {
+		this.curseur = new JdbcTemplate(jdbcTemplate.getDataSource());
+		this.curseur.setFetchSize(fetchSize);
+		this.objectMapper = objectMapper;
+		this.exports = new Semaphore(simultaneesMax);
+	}
+
+	// taken before the response starts, released by the streamed body once the export ends
+	public boolean reserver(){
+		return exports.tryAcquire();
+	}
+
+	public void liberer(){
+		exports.release();
+	}
+
+	// contracts overlapping [du, au], like the analytics
+	@Transactional(readOnly = true)
+	public long exporterContrats(FormatExport format, Integer apres, LocalDate du, LocalDate au, Specialite specialite,
+								 Integer idDepartement, boolean gzip, OutputStream out){
+		StringBuilder sql = new StringBuilder(SELECT_CONTRATS);
+		List<Object> parametres = new ArrayList<>();
+		parametres.add(apres == null ? 0 : apres);
+		if (du != null) {
+			sql.append(" AND c.date_fin_contrat >= ?");
+			parametres.add(Date.valueOf(du));
+		}
+		if (au != null) {
+			sql.append(" AND c.date_debut_contrat <= ?");
+			parametres.add(Date.valueOf(au));
+		}
+		if (specialite != null) {
+			sql.append(" AND c.specialite = ?");
+			parametres.add(specialite.name());
+		}
+		if (idDepartement != null) {
+			sql.append(" AND e.departement_id_depart = ?");
+			parametres.add(idDepartement);
+		}
+		sql.append(" ORDER BY c.id_contrat");
+		return exporter("contrats", format, COLONNES_CONTRAT, sql.toString(), parametres, gzip, out);
+	}
+
+	@Transactional(readOnly = true)
+	public long exporterEtudiants(FormatExport format, Integer apres, Integer idDepartement, boolean gzip, OutputStream out){
+		StringBuilder sql = new StringBuilder(SELECT_ETUDIANTS);
+		List<Object> parametres = new ArrayList<>();
+		parametres.add(apres == null ? 0 : apres);
+		if (idDepartement != null) {
+			sql.append(" AND e.departement_id_depart = ?");
+			parametres.add(idDepartement);
+		}
+		sql.append(" ORDER BY e.id_etudiant");
+		return exporter("etudiants", format, COLONNES_ETUDIANT, sql.toString(), parametres, gzip, out);
+	}
+
+	private long exporter(String nom, FormatExport format, String[] colonnes, String sql, List<Object> parametres,
+						  boolean gzip, OutputStream out){
+		long[] lignes = {0};
+		try {
+			// sync flush : what is flushed reaches the client even while compressing
+			GZIPOutputStream compression = gzip ? new GZIPOutputStream(out, TAILLE_TAMPON, true) : null;
+			Ecrivain ecrivain = format == FormatExport.CSV
+					? new EcrivainCsv(compression != null ? compression : out, colonnes)
+					: new EcrivainNdjson(compression != null ? compression : out, colonnes);
+			ecrivain.flush();
+			curseur.query(sql, rs -> {
+				try {
+					ecrivain.ligne(rs);
+					if (++lignes[0] % FLUSH_TOUTES_LES_LIGNES == 1) {
+						ecrivain.flush();
+					}
+				} catch (IOException e) {
+					throw new UncheckedIOException(e);
+				}
+			}, parametres.toArray());
+			ecrivain.flush();
+			if (compression != null) {
+				compression.finish();
+			}
+			out.flush();
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		log.info("Export {} ({}) : {} ligne(s)", nom, format, lignes[0]);
+		return lignes[0];
+	}
+
+	// JDBC values as text : DATE columns give yyyy-MM-dd, what the imports read
+	private abstract static class Ecrivain {
+		protected final String[] colonnes;
+
+		Ecrivain(String[] colonnes) {
+			this.colonnes = colonnes;
+		}
+
+		abstract void ligne(ResultSet rs) throws SQLException, IOException;
+
+		abstract void flush() throws IOException;
+	}
+
+	// RFC 4180 : fields with a separator, a quote or a line break are quoted, quotes doubled
+	private static final class EcrivainCsv extends Ecrivain {
+		private final Writer writer;
+
+		EcrivainCsv(OutputStream out, String[] colonnes) throws IOException {
+			super(colonnes);
+			this.writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), TAILLE_TAMPON);
+			writer.write(String.join(",", colonnes));
+			writer.write("\r\n");
+		}
+
+		void ligne(ResultSet rs) throws SQLException, IOException {
+			for (int i = 1; i <= colonnes.length; i++) {
+				if (i > 1) {
+					writer.write(',');
+				}
+				Object valeur = rs.getObject(i);
+				if (valeur != null) {
+					writer.write(echapper(valeur.toString()));
+				}
+			}
+			writer.write("\r\n");
+		}
+
+		void flush() throws IOException {
+			writer.flush();
+		}
+
+		static String echapper(String valeur){
+			if (valeur.indexOf(',') < 0 && valeur.indexOf('"') < 0 && valeur.indexOf('\n') < 0 && valeur.indexOf('\r') < 0) {
+				return valeur;
+			}
+			return '"' + valeur.replace("\"", "\"\"") + '"';
+		}
+	}
+
+	private final class EcrivainNdjson extends Ecrivain {
+		private final JsonGenerator generator;
+
+		EcrivainNdjson(OutputStream out, String[] colonnes) throws IOException {
+			super(colonnes);
+			this.generator = objectMapper.getFactory().createGenerator(out);
+		}
+
+		void ligne(ResultSet rs) throws SQLException, IOException {
+			generator.writeStartObject();
+			for (int i = 1; i <= colonnes.length; i++) {
+				Object valeur = rs.getObject(i);
+				generator.writeFieldName(colonnes[i - 1]);
+				if (valeur == null) {
+					generator.writeNull();
+				} else if (valeur instanceof Number) {
+					generator.writeNumber(((Number) valeur).longValue());
+				} else if (valeur instanceof Boolean) {
+					generator.writeBoolean((Boolean) valeur);
+				} else {
+					generator.writeString(valeur.toString());
+				}
+			}
+			generator.writeEndObject();
+			generator.writeRaw('\n');
+		}
+
+		void flush() throws IOException {
+			generator.flush();
+		}
+	}
+}
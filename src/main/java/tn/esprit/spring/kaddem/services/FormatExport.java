@@ -0,0 +1,16 @@
+package tn.esprit.spring.kaddem.services;
+
+// output of the /export endpoints, one row per line in both cases
+public enum FormatExport {
+    CSV("text/csv"), NDJSON("application/x-ndjson");
+
+    private final String mediaType;
+
+    FormatExport(String mediaType) {
+        this.mediaType = mediaType;
+    }
+
+    public String getMediaType() {
+        return mediaType;
+    }
+}
@@ -0,0 +1,9 @@
+package tn.esprit.spring.kaddem.services;
+
+import tn.esprit.spring.kaddem.dto.CacheStatistiques;
+
+public interface ICacheService {
+    public CacheStatistiques retrieveStatistiques();
+
+    public void evictDepartementsDesUniversites();
+}
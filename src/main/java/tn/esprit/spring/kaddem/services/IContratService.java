@@ -1,12 +1,28 @@
 package tn.esprit.spring.kaddem.services;
 
+import tn.esprit.spring.kaddem.dto.ChiffreAffaireDetail;
+import tn.esprit.spring.kaddem.dto.ContratVue;
+import tn.esprit.spring.kaddem.dto.KeysetPage;
 import tn.esprit.spring.kaddem.entities.Contrat;
+import tn.esprit.spring.kaddem.entities.Specialite;
+
+import java.io.OutputStream;
+import java.time.LocalDate;
 import java.util.Date;
 import java.util.List;
+import java.util.Set;
 
 public interface IContratService {
     public List<Contrat> retrieveAllContrats();
 
+    public List<ContratVue> retrieveAllContratVues();
+
+    public ContratVue retrieveContratVue(Integer idContrat);
+
+    public KeysetPage<ContratVue> retrieveContratsPage(String curseur, Specialite specialite, Boolean archive, int taille);
+
+    public void streamContrats(String curseur, Specialite specialite, Boolean archive, Set<String> champs, OutputStream out);
+
     public Contrat updateContrat (Contrat  ce);
 
     public  Contrat addContrat (Contrat ce);
@@ -22,6 +38,14 @@ public interface IContratService {
 
     public float getChiffreAffaireEntreDeuxDates(Date startDate, Date endDate);
 
-    public void retrieveAndUpdateStatusContrat();
+    public ChiffreAffaireDetail getChiffreAffaireDetail(Date startDate, Date endDate);
+
+    public int retrieveAndUpdateStatusContrat();
+
+    public int retrieveAndUpdateStatusContrat(LocalDate prevenusJusquA, int idDebut, int idFin);
+
+    public ModeAnalytique getModeAnalytique();
+
+    public ModeAnalytique changerModeAnalytique(ModeAnalytique mode);
 }
 
@@ -1,5 +1,6 @@
 package tn.esprit.spring.kaddem.services;
 
+import tn.esprit.spring.kaddem.dto.DepartementVue;
 import tn.esprit.spring.kaddem.entities.Departement;
 
 import java.util.List;
@@ -7,6 +8,10 @@ import java.util.List;
 public interface IDepartementService {
     public List<Departement> retrieveAllDepartements();
 
+    public List<DepartementVue> retrieveAllDepartementVues();
+
+    public DepartementVue retrieveDepartementVue(Integer idDepart);
+
     public Departement addDepartement (Departement d);
 
     public   Departement updateDepartement (Departement d);
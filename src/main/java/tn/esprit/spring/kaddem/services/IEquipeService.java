@@ -1,14 +1,27 @@
 package tn.esprit.spring.kaddem.services;
 
+import tn.esprit.spring.kaddem.dto.EquipeVue;
+import tn.esprit.spring.kaddem.dto.EtudiantVue;
+import tn.esprit.spring.kaddem.dto.KeysetPage;
+import tn.esprit.spring.kaddem.dto.PromotionEquipe;
 import tn.esprit.spring.kaddem.entities.Equipe;
 
+import java.util.Collection;
 import java.util.List;
 
 public interface IEquipeService {
     public List<Equipe> retrieveAllEquipes();
+    public List<EquipeVue> retrieveAllEquipeVues();
+    public EquipeVue retrieveEquipeVue(Integer equipeId);
     public Equipe addEquipe(Equipe e);
     public  void deleteEquipe(Integer idEquipe);
     public Equipe updateEquipe(Equipe e);
     public Equipe retrieveEquipe(Integer equipeId);
+    public int ajouterEtudiants(Integer idEquipe, Collection<Integer> idsEtudiants);
+    public int retirerEtudiants(Integer idEquipe, Collection<Integer> idsEtudiants);
+    public KeysetPage<EtudiantVue> retrieveEtudiantsEquipe(Integer idEquipe, String curseur, int taille);
+    public long nbEtudiantsEquipe(Integer idEquipe);
     public void evoluerEquipes();
+    public List<PromotionEquipe> evoluerEquipes(boolean simulation);
+    public List<PromotionEquipe> evoluerEquipes(boolean simulation, int idDebut, int idFin);
 }
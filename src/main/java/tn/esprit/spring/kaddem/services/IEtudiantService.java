@@ -1,5 +1,7 @@
 package tn.esprit.spring.kaddem.services;
 
+import tn.esprit.spring.kaddem.dto.EtudiantVue;
+import tn.esprit.spring.kaddem.dto.OffsetPage;
 import tn.esprit.spring.kaddem.entities.Etudiant;
 
 import java.util.List;
@@ -7,6 +9,10 @@ import java.util.List;
 public interface IEtudiantService {
     public List<Etudiant> retrieveAllEtudiants();
 
+    public List<EtudiantVue> retrieveAllEtudiantVues();
+
+    public EtudiantVue retrieveEtudiantVue(Integer idEtudiant);
+
     public Etudiant addEtudiant (Etudiant e);
 
     public Etudiant updateEtudiant (Etudiant e);
@@ -19,5 +25,9 @@ public interface IEtudiantService {
 
     public Etudiant addAndAssignEtudiantToEquipeAndContract(Etudiant e, Integer idContrat, Integer idEquipe);
 
-    public 	List<Etudiant> getEtudiantsByDepartement (Integer idDepartement);
+    public 	OffsetPage<EtudiantVue> getEtudiantsByDepartement (Integer idDepartement, int page, int taille);
+
+    public long getNbEtudiantsByDepartement(Integer idDepartement);
+
+    public List<EtudiantVue> rechercherEtudiants(String texte, int k);
 }
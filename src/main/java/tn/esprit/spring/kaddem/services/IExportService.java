@@ -0,0 +1,17 @@
+package tn.esprit.spring.kaddem.services;
+
+import tn.esprit.spring.kaddem.entities.Specialite;
+
+import java.io.OutputStream;
+import java.time.LocalDate;
+
+public interface IExportService {
+    public long exporterContrats(FormatExport format, Integer apres, LocalDate du, LocalDate au, Specialite specialite,
+                                 Integer idDepartement, boolean gzip, OutputStream out);
+
+    public boolean reserver();
+
+    public void liberer();
+
+    public long exporterEtudiants(FormatExport format, Integer apres, Integer idDepartement, boolean gzip, OutputStream out);
+}
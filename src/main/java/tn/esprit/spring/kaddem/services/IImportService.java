@@ -0,0 +1,11 @@
+package tn.esprit.spring.kaddem.services;
+
+import tn.esprit.spring.kaddem.dto.ImportRapport;
+
+import java.io.InputStream;
+
+public interface IImportService {
+    public ImportRapport importerEtudiants(InputStream donnees, String contentType);
+
+    public ImportRapport importerContrats(InputStream donnees, String contentType);
+}
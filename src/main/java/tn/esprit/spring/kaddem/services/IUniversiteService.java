@@ -1,14 +1,18 @@
 package tn.esprit.spring.kaddem.services;
 
-import tn.esprit.spring.kaddem.entities.Departement;
+import tn.esprit.spring.kaddem.dto.DepartementVue;
+import tn.esprit.spring.kaddem.dto.UniversiteVue;
 import tn.esprit.spring.kaddem.entities.Universite;
 
 import java.util.List;
-import java.util.Set;
 
 public interface IUniversiteService {
    public List<Universite> retrieveAllUniversites();
 
+    public List<UniversiteVue> retrieveAllUniversiteVues();
+
+    public UniversiteVue retrieveUniversiteVue(Integer idUniversite);
+
     Universite addUniversite (Universite  u);
 
     Universite updateUniversite (Universite  u);
@@ -19,7 +23,7 @@ public interface IUniversiteService {
 
     public void assignUniversiteToDepartement(Integer idUniversite, Integer idDepartement);
 
-    public Set<Departement> retrieveDepartementsByUniversite(Integer idUniversite);
+    public List<DepartementVue> retrieveDepartementsByUniversite(Integer idUniversite);
 
 
 }
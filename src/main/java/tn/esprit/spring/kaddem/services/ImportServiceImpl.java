@@ -0,0 +1,343 @@
+package tn.esprit.spring.kaddem.services;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ParameterizedPreparedStatementSetter;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import tn.esprit.spring.kaddem.dto.ContratImport;
+import tn.esprit.spring.kaddem.dto.EtudiantImport;
+import tn.esprit.spring.kaddem.dto.EtudiantVue;
+import tn.esprit.spring.kaddem.dto.ImportRapport;
+import tn.esprit.spring.kaddem.entities.Contrat;
+import tn.esprit.spring.kaddem.entities.Etudiant;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+/**
+ * Bulk imports through plain JDBC : the entities use IDENTITY keys, which turn off Hibernate insert batching,
+ * so rows go out as JDBC batches (rewritten into multi-row INSERTs by Connector/J) and are committed per chunk.
+ * A chunk rejected by the database is replayed row by row to report the offending rows.
+ */
+@Slf4j
+@Service
+public class ImportServiceImpl implements IImportService {
+	static final String INSERT_ETUDIANT = "INSERT INTO etudiant (nom_e, prenom_e, op, departement_id_depart) VALUES (?, ?, ?, ?)";
+	static final String INSERT_CONTRAT = "INSERT INTO contrat (date_debut_contrat, date_fin_contrat, specialite, archive,"
+			+ " montant_contrat, etudiant_id_etudiant) VALUES (?, ?, ?, ?, ?, ?)";
+
+	@Autowired
+	JdbcTemplate jdbcTemplate;
+	@Autowired
+	ObjectMapper objectMapper;
+	@Autowired
+	PlatformTransactionManager transactionManager;
+	@Autowired
+	EcheancierContrats echeancierContrats;
+	@Autowired
+	VersionsEntites versionsEntites;
+	@Autowired
+	ContratSnapshot contratSnapshot;
+	@Autowired
+	AgregatsEquipes agregatsEquipes;
+	@Autowired
+	CacheEtudiantsDepartement cacheEtudiantsDepartement;
+	@Autowired
+	IndexEtudiants indexEtudiants;
+	@Value("${kaddem.import.chunk-size:1000}")
+	int tailleChunk;
+	@Value("${kaddem.import.max-erreurs:1000}")
+	int maxErreurs;
+
+	public ImportRapport importerEtudiants(InputStream donnees, String contentType){
+		ImportRapport rapport = importer(donnees, contentType, EtudiantImport.class, INSERT_ETUDIANT, ImportServiceImpl::validerEtudiant,
+				(ps, e) -> {
+					ps.setString(1, e.getNomE());
+					ps.setString(2, e.getPrenomE());
+					ps.setString(3, e.getOp() == null ? null : e.getOp().name());
+					ps.setObject(4, e.getIdDepartement(), Types.INTEGER);
+				}, this::etudiantsInseres);
+		if (rapport.getLignesInserees() > 0) {
+			versionsEntites.modifier(Etudiant.class);
+			cacheEtudiantsDepartement.toutInvalider();
+		}
+		return rapport;
+	}
+
+	public ImportRapport importerContrats(InputStream donnees, String contentType){
+		ImportRapport rapport = importer(donnees, contentType, ContratImport.class, INSERT_CONTRAT, ImportServiceImpl::validerContrat,
+				(ps, c) -> {
+					ps.setDate(1, java.sql.Date.valueOf(c.getDateDebutContrat()));
+					ps.setDate(2, java.sql.Date.valueOf(c.getDateFinContrat()));
+					ps.setString(3, c.getSpecialite() == null ? null : c.getSpecialite().name());
+					ps.setBoolean(4, Boolean.TRUE.equals(c.getArchive()));
+					ps.setObject(5, c.getMontantContrat(), Types.INTEGER);
+					ps.setObject(6, c.getIdEtudiant(), Types.INTEGER);
+				}, this::contratsInseres);
+		if (rapport.getLignesInserees() > 0) {
+			versionsEntites.modifier(Contrat.class);
+		}
+		return rapport;
+	}
+
+	// only the new students go into the search index, once their chunk has committed
+	private void etudiantsInseres(List<EtudiantImport> etudiants, List<Integer> ids){
+		List<EtudiantVue> vues = new ArrayList<>(etudiants.size());
+		for (int i = 0; i < etudiants.size(); i++) {
+			EtudiantImport e = etudiants.get(i);
+			vues.add(new EtudiantVue(ids.get(i), e.getNomE(), e.getPrenomE(), e.getOp()));
+		}
+		indexEtudiants.indexer(vues);
+	}
+
+	// the JDBC inserts bypass ContratServiceImpl : only the teams of their students are recounted, before the chunk
+	// commits ; the new contracts are reported when due soon and go into the snapshot once it has committed, a chunk
+	// rolled back and replayed row by row never leaves its rows in memory
+	private void contratsInseres(List<ContratImport> contrats, List<Integer> ids){
+		agregatsEquipes.etudiantsModifies(contrats.stream().map(ContratImport::getIdEtudiant).toArray(Integer[]::new));
+		List<Contrat> inseres = new ArrayList<>(contrats.size());
+		for (int i = 0; i < contrats.size(); i++) {
+			ContratImport c = contrats.get(i);
+			Contrat contrat = new Contrat(ids.get(i), java.sql.Date.valueOf(c.getDateDebutContrat()),
+					java.sql.Date.valueOf(c.getDateFinContrat()), c.getSpecialite(), Boolean.TRUE.equals(c.getArchive()),
+					c.getMontantContrat());
+			echeancierContrats.planifier(contrat, null);
+			inseres.add(contrat);
+		}
+		apresCommit(() -> inseres.forEach(contratSnapshot::appliquer));
+	}
+
+	private static void apresCommit(Runnable action){
+		if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+			action.run();
+			return;
+		}
+		TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+			@Override
+			public void afterCommit() {
+				action.run();
+			}
+		});
+	}
+
+	static String validerEtudiant(EtudiantImport e){
+		if (e.getNomE() == null || e.getNomE().isBlank() || e.getPrenomE() == null || e.getPrenomE().isBlank()) {
+			return "nomE et prenomE sont obligatoires";
+		}
+		return null;
+	}
+
+	static String validerContrat(ContratImport c){
+		if (c.getDateDebutContrat() == null || c.getDateFinContrat() == null) {
+			return "dateDebutContrat et dateFinContrat sont obligatoires";
+		}
+		if (c.getDateFinContrat().isBefore(c.getDateDebutContrat())) {
+			return "dateFinContrat est antérieure à dateDebutContrat";
+		}
+		return null;
+	}
+
+	private <T> ImportRapport importer(InputStream donnees, String contentType, Class<T> type, String sql,
+									   Function<T, String> validation, ParameterizedPreparedStatementSetter<T> liaison,
+									   BiConsumer<List<T>, List<Integer>> apresInsertion){
+		ImportRapport rapport = new ImportRapport(maxErreurs);
+		List<Ligne<T>> chunk = new ArrayList<>(tailleChunk);
+		LigneConsumer<T> consommateur = ligne -> {
+			rapport.ligneLue();
+			String erreur = ligne.erreur != null ? ligne.erreur : validation.apply(ligne.valeur);
+			if (erreur != null) {
+				rapport.erreur(ligne.numero, erreur);
+				return;
+			}
+			chunk.add(ligne);
+			if (chunk.size() >= tailleChunk) {
+				inserer(sql, chunk, liaison, apresInsertion, rapport);
+				chunk.clear();
+			}
+		};
+		try {
+			if (contentType != null && contentType.startsWith("text/csv")) {
+				lireCsv(donnees, type, consommateur);
+			} else {
+				lireJson(donnees, type, consommateur, rapport);
+			}
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		if (!chunk.isEmpty()) {
+			inserer(sql, chunk, liaison, apresInsertion, rapport);
+		}
+		log.info("Import {} : {} ligne(s) lue(s), {} insérée(s), {} erreur(s)", type.getSimpleName(),
+				rapport.getLignesLues(), rapport.getLignesInserees(), rapport.getNbErreurs());
+		return rapport;
+	}
+
+	// apresInsertion gets the rows and their generated ids, inside the transaction of the chunk
+	private <T> void inserer(String sql, List<Ligne<T>> chunk, ParameterizedPreparedStatementSetter<T> liaison,
+							 BiConsumer<List<T>, List<Integer>> apresInsertion, ImportRapport rapport){
+		TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+		List<T> valeurs = new ArrayList<>(chunk.size());
+		chunk.forEach(l -> valeurs.add(l.valeur));
+		try {
+			transaction.executeWithoutResult(status -> insererLot(sql, valeurs, liaison, apresInsertion));
+			rapport.lignesInserees(valeurs.size());
+		} catch (DataAccessException e) {
+			for (Ligne<T> ligne : chunk) {
+				try {
+					transaction.executeWithoutResult(status -> insererLot(sql, List.of(ligne.valeur), liaison, apresInsertion));
+					rapport.lignesInserees(1);
+				} catch (DataAccessException erreurLigne) {
+					rapport.erreur(ligne.numero, erreurLigne.getMostSpecificCause().getMessage());
+				}
+			}
+		}
+	}
+
+	private <T> void insererLot(String sql, List<T> valeurs, ParameterizedPreparedStatementSetter<T> liaison,
+								BiConsumer<List<T>, List<Integer>> apresInsertion){
+		if (apresInsertion == null) {
+			jdbcTemplate.batchUpdate(sql, valeurs, valeurs.size(), liaison);
+			return;
+		}
+		List<Integer> ids = jdbcTemplate.execute((ConnectionCallback<List<Integer>>) connexion -> {
+			try (PreparedStatement ps = connexion.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
+				for (T valeur : valeurs) {
+					liaison.setValues(ps, valeur);
+					ps.addBatch();
+				}
+				ps.executeBatch();
+				List<Integer> cles = new ArrayList<>(valeurs.size());
+				try (ResultSet rs = ps.getGeneratedKeys()) {
+					while (rs.next()) {
+						cles.add(rs.getInt(1));
+					}
+				}
+				return cles;
+			}
+		});
+		if (ids.size() != valeurs.size()) {
+			throw new IllegalStateException(ids.size() + " identifiant(s) générés pour " + valeurs.size() + " ligne(s)");
+		}
+		apresInsertion.accept(valeurs, ids);
+	}
+
+	// a JSON array and a stream of root-level objects (NDJSON) are both read one element at a time
+	private <T> void lireJson(InputStream donnees, Class<T> type, LigneConsumer<T> consommateur, ImportRapport rapport)
+			throws IOException {
+		long numero = 0;
+		try (MappingIterator<T> it = objectMapper.readerFor(type).readValues(donnees)) {
+			while (it.hasNextValue()) {
+				numero++;
+				try {
+					consommateur.accept(new Ligne<>(numero, it.nextValue(), null));
+				} catch (JsonMappingException e) {
+					consommateur.accept(new Ligne<>(numero, null, e.getOriginalMessage()));
+				}
+			}
+		} catch (JsonProcessingException e) {
+			// malformed JSON : nothing after this point can be trusted
+			rapport.erreur(numero, "JSON invalide : " + e.getOriginalMessage());
+		}
+	}
+
+	private <T> void lireCsv(InputStream donnees, Class<T> type, LigneConsumer<T> consommateur) throws IOException {
+		BufferedReader lecteur = new BufferedReader(new InputStreamReader(donnees, StandardCharsets.UTF_8));
+		String entete = lecteur.readLine();
+		if (entete == null) {
+			return;
+		}
+		List<String> colonnes = decouperCsv(entete.replace("\uFEFF", ""));
+		long numero = 0;
+		String texte;
+		while ((texte = lecteur.readLine()) != null) {
+			if (texte.isBlank()) {
+				continue;
+			}
+			numero++;
+			List<String> champs = decouperCsv(texte);
+			Map<String, String> valeurs = new HashMap<>();
+			for (int i = 0; i < colonnes.size() && i < champs.size(); i++) {
+				if (!champs.get(i).isEmpty()) {
+					valeurs.put(colonnes.get(i).trim(), champs.get(i));
+				}
+			}
+			try {
+				consommateur.accept(new Ligne<>(numero, objectMapper.convertValue(valeurs, type), null));
+			} catch (IllegalArgumentException e) {
+				consommateur.accept(new Ligne<>(numero, null, e.getMessage()));
+			}
+		}
+	}
+
+	// RFC 4180 fields on a single line : comma separated, optionally quoted, "" inside quotes
+	static List<String> decouperCsv(String ligne){
+		List<String> champs = new ArrayList<>();
+		StringBuilder champ = new StringBuilder();
+		boolean guillemets = false;
+		for (int i = 0; i < ligne.length(); i++) {
+			char c = ligne.charAt(i);
+			if (guillemets) {
+				if (c == '"' && i + 1 < ligne.length() && ligne.charAt(i + 1) == '"') {
+					champ.append('"');
+					i++;
+				} else if (c == '"') {
+					guillemets = false;
+				} else {
+					champ.append(c);
+				}
+			} else if (c == '"') {
+				guillemets = true;
+			} else if (c == ',') {
+				champs.add(champ.toString());
+				champ.setLength(0);
+			} else {
+				champ.append(c);
+			}
+		}
+		champs.add(champ.toString());
+		return champs;
+	}
+
+	private static final class Ligne<T> {
+		final long numero;
+		final T valeur;
+		final String erreur;
+
+		Ligne(long numero, T valeur, String erreur) {
+			this.numero = numero;
+			this.valeur = valeur;
+			this.erreur = erreur;
+		}
+	}
+
+	@FunctionalInterface
+	private interface LigneConsumer<T> {
+		void accept(Ligne<T> ligne);
+	}
+}
@@ -0,0 +1,397 @@
+package tn.esprit.spring.kaddem.services;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import tn.esprit.spring.kaddem.dto.EtudiantVue;
+import tn.esprit.spring.kaddem.entities.Etudiant;
+import tn.esprit.spring.kaddem.repositories.EtudiantRepository;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * In-memory search index over nomE / prenomE. Names are lower-cased without accents and split into words ;
+ * each distinct word gets an ordinal, a sorted int[] of the students carrying it, and its trigrams ("$" + word + "$")
+ * point back to the word ordinals. A query word matches a word exactly, as a prefix, or within 1 edit (2 from
+ * 8 letters) using the trigrams to find the candidates. A student must match every query word and the k best
+ * scores are returned. Loaded at startup, EtudiantServiceImpl and the imports keep it current after commit : the
+ * load builds a new Contenu without holding the lock, searches keep using the old one, and the new one is
+ * published by a single reference swap once the changes committed meanwhile are replayed on it.
+ */
+@Slf4j
+@Component
+public class IndexEtudiants {
+	static final int SCORE_EXACT = 3;
+	static final int SCORE_PREFIXE = 2;
+	static final int SCORE_APPROCHE = 1;
+	static final int LONGUEUR_MIN_APPROCHE = 4;
+	static final int LONGUEUR_DEUX_ERREURS = 8;
+	private static final Pattern ACCENTS = Pattern.compile("\\p{M}+");
+	private static final Pattern SEPARATEURS = Pattern.compile("[^\\p{L}\\p{N}]+");
+
+	@Autowired
+	EtudiantRepository etudiantRepository;
+	@Autowired
+	PlatformTransactionManager transactionManager;
+
+	// guards the current Contenu and the journal ; a reload takes it only to open the journal and to swap
+	private final ReentrantReadWriteLock verrou = new ReentrantReadWriteLock();
+	private volatile Contenu contenu = new Contenu();
+	// changes applied while a reload is running, replayed on the new Contenu before it is published
+	private List<Consumer<Contenu>> journal;
+	private volatile boolean charge;
+
+	@EventListener(ApplicationReadyEvent.class)
+	public void demarrer(){
+		recharger();
+	}
+
+	// rebuilds the index from the table
+	public synchronized void recharger(){
+		verrou.writeLock().lock();
+		try {
+			journal = new ArrayList<>();
+		} finally {
+			verrou.writeLock().unlock();
+		}
+		Contenu nouveau = new Contenu();
+		boolean publie = false;
+		try {
+			TransactionTemplate lecture = new TransactionTemplate(transactionManager);
+			lecture.setReadOnly(true);
+			lecture.executeWithoutResult(status -> {
+				try (Stream<EtudiantVue> vues = etudiantRepository.streamVues()) {
+					vues.forEach(nouveau::ecrire);
+				}
+			});
+			verrou.writeLock().lock();
+			try {
+				// committed after the read began, or already in it : replaying is idempotent
+				journal.forEach(modification -> modification.accept(nouveau));
+				contenu = nouveau;
+				journal = null;
+				publie = true;
+				log.info("Index des etudiants : {} etudiant(s), {} mot(s), {} trigramme(s)", nouveau.etudiants.size(),
+						nouveau.mots.size(), nouveau.motsParTrigramme.size());
+			} finally {
+				verrou.writeLock().unlock();
+			}
+			charge = true;
+		} finally {
+			if (!publie) {
+				verrou.writeLock().lock();
+				try {
+					journal = null;
+				} finally {
+					verrou.writeLock().unlock();
+				}
+			}
+		}
+	}
+
+	public void indexer(Etudiant e){
+		if (e == null || e.getIdEtudiant() == null) {
+			return;
+		}
+		EtudiantVue vue = new EtudiantVue(e.getIdEtudiant(), e.getNomE(), e.getPrenomE(), e.getOp());
+		apresCommit(() -> modifier(c -> {
+			c.effacer(vue.getIdEtudiant());
+			c.ecrire(vue);
+		}));
+	}
+
+	// a chunk of imported students, added under a single write lock once it has committed
+	public void indexer(Collection<EtudiantVue> vues){
+		if (vues.isEmpty()) {
+			return;
+		}
+		apresCommit(() -> modifier(c -> vues.forEach(vue -> {
+			c.effacer(vue.getIdEtudiant());
+			c.ecrire(vue);
+		})));
+	}
+
+	public void retirer(Integer idEtudiant){
+		apresCommit(() -> modifier(c -> c.effacer(idEtudiant)));
+	}
+
+	private void modifier(Consumer<Contenu> modification){
+		verrou.writeLock().lock();
+		try {
+			modification.accept(contenu);
+			if (journal != null) {
+				journal.add(modification);
+			}
+		} finally {
+			verrou.writeLock().unlock();
+		}
+	}
+
+	public boolean isCharge(){
+		return charge;
+	}
+
+	public List<EtudiantVue> rechercher(String texte, int k){
+		List<String> termes = mots(texte);
+		if (termes.isEmpty() || k <= 0) {
+			return new ArrayList<>();
+		}
+		verrou.readLock().lock();
+		try {
+			Contenu c = contenu;
+			Map<Integer, Integer> scores = null;
+			for (String terme : termes) {
+				Map<Integer, Integer> scoresTerme = c.etudiantsCorrespondants(terme);
+				if (scores == null) {
+					scores = scoresTerme;
+				} else {
+					Map<Integer, Integer> precedents = scores;
+					scores = new HashMap<>();
+					for (Map.Entry<Integer, Integer> s : scoresTerme.entrySet()) {
+						Integer precedent = precedents.get(s.getKey());
+						if (precedent != null) {
+							scores.put(s.getKey(), precedent + s.getValue());
+						}
+					}
+				}
+				if (scores.isEmpty()) {
+					return new ArrayList<>();
+				}
+			}
+			return c.meilleurs(scores, k);
+		} finally {
+			verrou.readLock().unlock();
+		}
+	}
+
+	// lower case, accents removed, split on everything that is not a letter or a digit
+	static List<String> mots(String texte){
+		if (texte == null) {
+			return new ArrayList<>();
+		}
+		String sansAccents = ACCENTS.matcher(Normalizer.normalize(texte, Normalizer.Form.NFD)).replaceAll("");
+		Set<String> mots = new LinkedHashSet<>();
+		for (String mot : SEPARATEURS.split(sansAccents.toLowerCase(Locale.ROOT))) {
+			if (!mot.isEmpty()) {
+				mots.add(mot);
+			}
+		}
+		return new ArrayList<>(mots);
+	}
+
+	static Set<String> trigrammes(String mot){
+		String borne = "$" + mot + "$";
+		Set<String> trigrammes = new LinkedHashSet<>();
+		for (int i = 0; i + 3 <= borne.length(); i++) {
+			trigrammes.add(borne.substring(i, i + 3));
+		}
+		return trigrammes;
+	}
+
+	// optimal string alignment distance, stops once every cell of a row exceeds max
+	static int distance(String a, String b, int max){
+		int[] avantDerniere = new int[b.length() + 1];
+		int[] derniere = new int[b.length() + 1];
+		int[] courante = new int[b.length() + 1];
+		for (int j = 0; j <= b.length(); j++) {
+			derniere[j] = j;
+		}
+		for (int i = 1; i <= a.length(); i++) {
+			courante[0] = i;
+			int minLigne = i;
+			for (int j = 1; j <= b.length(); j++) {
+				int cout = a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1;
+				int d = Math.min(Math.min(derniere[j] + 1, courante[j - 1] + 1), derniere[j - 1] + cout);
+				if (i > 1 && j > 1 && a.charAt(i - 1) == b.charAt(j - 2) && a.charAt(i - 2) == b.charAt(j - 1)) {
+					d = Math.min(d, avantDerniere[j - 2] + 1);
+				}
+				courante[j] = d;
+				minLigne = Math.min(minLigne, d);
+			}
+			if (minLigne > max) {
+				return max + 1;
+			}
+			int[] libre = avantDerniere;
+			avantDerniere = derniere;
+			derniere = courante;
+			courante = libre;
+		}
+		return derniere[b.length()];
+	}
+
+	private static void apresCommit(Runnable modification){
+		if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+			modification.run();
+			return;
+		}
+		TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+			@Override
+			public void afterCommit() {
+				modification.run();
+			}
+		});
+	}
+
+	// the structures of one load, searched under the read lock and changed under the write lock
+	private static final class Contenu {
+		private final Map<Integer, EtudiantVue> etudiants = new HashMap<>();
+		private final Map<Integer, int[]> motsParEtudiant = new HashMap<>();
+		private final TreeMap<String, Integer> dictionnaire = new TreeMap<>();
+		private final List<String> mots = new ArrayList<>();
+		private final List<Postings> etudiantsParMot = new ArrayList<>();
+		private final Map<String, Postings> motsParTrigramme = new HashMap<>();
+
+		// best score of each student for one query word
+		private Map<Integer, Integer> etudiantsCorrespondants(String terme){
+			Map<Integer, Integer> scoresMots = new HashMap<>();
+			for (Integer mot : dictionnaire.subMap(terme, true, terme + Character.MAX_VALUE, false).values()) {
+				scoresMots.put(mot, mots.get(mot).length() == terme.length() ? SCORE_EXACT : SCORE_PREFIXE);
+			}
+			if (terme.length() >= LONGUEUR_MIN_APPROCHE) {
+				int erreursMax = terme.length() >= LONGUEUR_DEUX_ERREURS ? 2 : 1;
+				for (int mot : candidatsApproches(terme, erreursMax)) {
+					if (!scoresMots.containsKey(mot) && distance(terme, mots.get(mot), erreursMax) <= erreursMax) {
+						scoresMots.put(mot, SCORE_APPROCHE);
+					}
+				}
+			}
+			Map<Integer, Integer> scores = new HashMap<>();
+			for (Map.Entry<Integer, Integer> s : scoresMots.entrySet()) {
+				Postings postings = etudiantsParMot.get(s.getKey());
+				for (int i = 0; i < postings.taille; i++) {
+					scores.merge(postings.ids[i], s.getValue(), Math::max);
+				}
+			}
+			return scores;
+		}
+
+		// an edit changes at most 3 trigrams, a transposition 4 : a word within erreursMax edits keeps the others
+		private List<Integer> candidatsApproches(String terme, int erreursMax){
+			Set<String> trigrammes = trigrammes(terme);
+			int communsMin = Math.max(1, trigrammes.size() - 4 * erreursMax);
+			Map<Integer, Integer> communs = new HashMap<>();
+			for (String trigramme : trigrammes) {
+				Postings postings = motsParTrigramme.get(trigramme);
+				if (postings != null) {
+					for (int i = 0; i < postings.taille; i++) {
+						communs.merge(postings.ids[i], 1, Integer::sum);
+					}
+				}
+			}
+			List<Integer> candidats = new ArrayList<>();
+			communs.forEach((mot, n) -> {
+				if (n >= communsMin && Math.abs(mots.get(mot).length() - terme.length()) <= erreursMax) {
+					candidats.add(mot);
+				}
+			});
+			return candidats;
+		}
+
+		private List<EtudiantVue> meilleurs(Map<Integer, Integer> scores, int k){
+			Comparator<Map.Entry<Integer, Integer>> ordre = Map.Entry.<Integer, Integer>comparingByValue()
+					.thenComparing(Map.Entry.<Integer, Integer>comparingByKey().reversed());
+			PriorityQueue<Map.Entry<Integer, Integer>> tas = new PriorityQueue<>(ordre);
+			for (Map.Entry<Integer, Integer> s : scores.entrySet()) {
+				tas.offer(s);
+				if (tas.size() > k) {
+					tas.poll();
+				}
+			}
+			List<EtudiantVue> resultat = new ArrayList<>(tas.size());
+			while (!tas.isEmpty()) {
+				resultat.add(etudiants.get(tas.poll().getKey()));
+			}
+			Collections.reverse(resultat);
+			return resultat;
+		}
+
+		private void ecrire(EtudiantVue vue){
+			List<String> motsEtudiant = mots(vue.getNomE());
+			mots(vue.getPrenomE()).stream().filter(mot -> !motsEtudiant.contains(mot)).forEach(motsEtudiant::add);
+			int[] ordinaux = new int[motsEtudiant.size()];
+			for (int i = 0; i < ordinaux.length; i++) {
+				ordinaux[i] = ordinal(motsEtudiant.get(i));
+				etudiantsParMot.get(ordinaux[i]).ajouter(vue.getIdEtudiant());
+			}
+			etudiants.put(vue.getIdEtudiant(), vue);
+			motsParEtudiant.put(vue.getIdEtudiant(), ordinaux);
+		}
+
+		// a word left without students stays in the dictionary, it simply matches nobody
+		private void effacer(Integer idEtudiant){
+			etudiants.remove(idEtudiant);
+			int[] ordinaux = motsParEtudiant.remove(idEtudiant);
+			if (ordinaux != null) {
+				for (int mot : ordinaux) {
+					etudiantsParMot.get(mot).retirer(idEtudiant);
+				}
+			}
+		}
+
+		private int ordinal(String mot){
+			Integer ordinal = dictionnaire.get(mot);
+			if (ordinal != null) {
+				return ordinal;
+			}
+			int nouveau = mots.size();
+			dictionnaire.put(mot, nouveau);
+			mots.add(mot);
+			etudiantsParMot.add(new Postings());
+			for (String trigramme : trigrammes(mot)) {
+				motsParTrigramme.computeIfAbsent(trigramme, t -> new Postings()).ajouter(nouveau);
+			}
+			return nouveau;
+		}
+	}
+
+	// sorted ids, appended in the common case where ids grow
+	private static final class Postings {
+		private int[] ids = new int[2];
+		private int taille;
+
+		void ajouter(int id){
+			int position = taille == 0 || ids[taille - 1] < id ? -(taille + 1) : Arrays.binarySearch(ids, 0, taille, id);
+			if (position >= 0) {
+				return;
+			}
+			int insertion = -(position + 1);
+			if (taille == ids.length) {
+				ids = Arrays.copyOf(ids, taille + (taille >> 1) + 1);
+			}
+			System.arraycopy(ids, insertion, ids, insertion + 1, taille - insertion);
+			ids[insertion] = id;
+			taille++;
+		}
+
+		void retirer(int id){
+			int position = Arrays.binarySearch(ids, 0, taille, id);
+			if (position >= 0) {
+				System.arraycopy(ids, position + 1, ids, position, taille - position - 1);
+				taille--;
+			}
+		}
+	}
+}
@@ -0,0 +1,6 @@
+package tn.esprit.spring.kaddem.services;
+
+// where nbContratsValides and the revenue figures are computed
+public enum ModeAnalytique {
+    BASE, SNAPSHOT
+}
@@ -0,0 +1,91 @@
+package tn.esprit.spring.kaddem.services;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+/**
+ * Single-flight in front of the retrieve-by-id lookups : concurrent calls with the same key share the read of
+ * the first one (the leader) instead of each running its own. Keys are the ETags of VersionsEntites, so a call
+ * made after a write has committed never joins a read started before it ; computing that key just after a write
+ * also moves the leader's read to the primary (LecturePrimaire), not to a replica still behind it. A follower waits at most
+ * kaddem.coalescence.attente-max-ms, then reads on its own. Callers already inside a transaction read directly,
+ * they must see their own writes. Counted by kaddem.coalescence.appels (role leader, partage or expire).
+ */
+@Component
+public class RequetesGroupees {
+	private final Map<String, CompletableFuture<Object>> enVol = new ConcurrentHashMap<>();
+	private final MeterRegistry registry;
+	private final TransactionTemplate lecture;
+	private final long attenteMaxMs;
+
+	public RequetesGroupees(MeterRegistry registry, PlatformTransactionManager transactionManager,
+							@Value("${kaddem.coalescence.attente-max-ms:2000}") long attenteMaxMs) {
+		this.registry = registry;
+		this.lecture = new TransactionTemplate(transactionManager);
+		this.lecture.setReadOnly(true);
+		this.attenteMaxMs = attenteMaxMs;
+		Gauge.builder("kaddem.coalescence.en.vol", enVol, Map::size)
+				.description("Lookups being read on behalf of their followers")
+				.register(registry);
+	}
+
+	// the followers wait outside any transaction, only the leader holds a connection
+	@SuppressWarnings("unchecked")
+	public <T> T executer(String lookup, String cle, Supplier<T> chargement){
+		if (TransactionSynchronizationManager.isActualTransactionActive()) {
+			return chargement.get();
+		}
+		CompletableFuture<Object> vol = new CompletableFuture<>();
+		CompletableFuture<Object> existant = enVol.putIfAbsent(cle, vol);
+		if (existant == null) {
+			compter(lookup, "leader");
+			try {
+				T resultat = lecture.execute(status -> chargement.get());
+				vol.complete(resultat);
+				return resultat;
+			} catch (RuntimeException | Error e) {
+				vol.completeExceptionally(e);
+				throw e;
+			} finally {
+				enVol.remove(cle, vol);
+			}
+		}
+		try {
+			T resultat = (T) existant.get(attenteMaxMs, TimeUnit.MILLISECONDS);
+			compter(lookup, "partage");
+			return resultat;
+		} catch (TimeoutException e) {
+			compter(lookup, "expire");
+			return lecture.execute(status -> chargement.get());
+		} catch (ExecutionException e) {
+			compter(lookup, "partage");
+			if (e.getCause() instanceof RuntimeException) {
+				throw (RuntimeException) e.getCause();
+			}
+			if (e.getCause() instanceof Error) {
+				throw (Error) e.getCause();
+			}
+			throw new IllegalStateException(e.getCause());
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("lecture interrompue : " + cle, e);
+		}
+	}
+
+	private void compter(String lookup, String role){
+		registry.counter("kaddem.coalescence.appels", "lookup", lookup, "role", role).increment();
+	}
+}
@@ -2,13 +2,16 @@ package tn.esprit.spring.kaddem.services;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import tn.esprit.spring.kaddem.dto.DepartementVue;
+import tn.esprit.spring.kaddem.dto.UniversiteVue;
 import tn.esprit.spring.kaddem.entities.Departement;
 import tn.esprit.spring.kaddem.entities.Universite;
 import tn.esprit.spring.kaddem.repositories.DepartementRepository;
 import tn.esprit.spring.kaddem.repositories.UniversiteRepository;
 
 import java.util.List;
-import java.util.Set;
+import java.util.stream.Collectors;
 
 @Service
 public class UniversiteServiceImpl implements IUniversiteService{
@@ -16,27 +19,49 @@ public class UniversiteServiceImpl implements IUniversiteService{
     UniversiteRepository universiteRepository;
 @Autowired
     DepartementRepository departementRepository;
+@Autowired
+    VersionsEntites versionsEntites;
+@Autowired
+    RequetesGroupees requetesGroupees;
     public UniversiteServiceImpl() {
         // TODO Auto-generated constructor stub
     }
+  @Transactional(readOnly = true)
   public   List<Universite> retrieveAllUniversites(){
 return (List<Universite>) universiteRepository.findAll();
     }
 
+ // two columns served by the query and entity caches : mapping the cached entities costs no SQL
+  @Transactional(readOnly = true)
+  public List<UniversiteVue> retrieveAllUniversiteVues(){
+return retrieveAllUniversites().stream().map(UniversiteVue::de).collect(Collectors.toList());
+    }
+
+  public UniversiteVue retrieveUniversiteVue(Integer idUniversite){
+return requetesGroupees.executer("universite", versionsEntites.etag(Universite.class, idUniversite),
+        () -> UniversiteVue.de(retrieveUniversite(idUniversite)));
+    }
+
  public    Universite addUniversite (Universite  u){
-return  (universiteRepository.save(u));
+Universite universite = universiteRepository.save(u);
+versionsEntites.modifier(Universite.class, universite.getIdUniv());
+return  universite;
     }
 
  public    Universite updateUniversite (Universite  u){
-     return  (universiteRepository.save(u));
+     Universite universite = universiteRepository.save(u);
+     versionsEntites.modifier(Universite.class, universite.getIdUniv());
+     return  universite;
     }
 
+  @Transactional(readOnly = true)
   public Universite retrieveUniversite (Integer idUniversite){
 Universite u = universiteRepository.findById(idUniversite).get();
 return  u;
     }
     public  void deleteUniversite(Integer idUniversite){
         universiteRepository.delete(retrieveUniversite(idUniversite));
+        versionsEntites.modifier(Universite.class, idUniversite);
     }
 
     public void assignUniversiteToDepartement(Integer idUniversite, Integer idDepartement){
@@ -44,10 +69,12 @@ return  u;
         Departement d= departementRepository.findById(idDepartement).orElse(null);
         u.getDepartements().add(d);
         universiteRepository.save(u);
+        versionsEntites.modifier(Universite.class, idUniversite);
     }
 
-    public Set<Departement> retrieveDepartementsByUniversite(Integer idUniversite){
+    @Transactional(readOnly = true)
+    public List<DepartementVue> retrieveDepartementsByUniversite(Integer idUniversite){
 Universite u=universiteRepository.findById(idUniversite).orElse(null);
-return u.getDepartements();
+return u.getDepartements().stream().map(DepartementVue::de).collect(Collectors.toList());
     }
 }
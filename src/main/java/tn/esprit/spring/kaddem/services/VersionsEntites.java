@@ -0,0 +1,164 @@
+package tn.esprit.spring.kaddem.services;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import tn.esprit.spring.kaddem.datasource.LecturePrimaire;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Version counters behind the ETags of the retrieve endpoints : one counter per entity type, bumped by every
+ * write of the *ServiceImpl classes, and for single rows the type version of their last write.
+ * A write without ids (imports) raises the floor of every row tag of its type to the new version, ids that did
+ * not exist yet included. At most kaddem.etag.lignes-max row versions are kept per type : past that, the floor
+ * is raised the same way and the rows are forgotten, every client revalidates once.
+ * Bumps happen after commit, so a tag is never attached to data that could still roll back. With the replicas
+ * (kaddem.datasource.routing.enabled), a type written less than retard-max-secondes + intervalle-verification-ms
+ * ago may still be missing from a replica : tagging it sends the request's reads to the primary (LecturePrimaire),
+ * so the new tag is never served with the replica's older body and then answered 304 until the next write.
+ * Single instance only : the counters start from a random nonce at each startup and live in this JVM, writes
+ * made by another instance or outside the application do not move them, so their clients could get a 304 for
+ * data that changed. Several instances need a shared version store, or the conditional GETs turned off.
+ */
+@Component
+public class VersionsEntites {
+	private final String nonce = Long.toString(System.nanoTime() ^ System.currentTimeMillis(), 36);
+	private final Map<Class<?>, Versions> versionsParType = new ConcurrentHashMap<>();
+	private final int lignesMax;
+	// 0 without replicas : every read sees every committed write
+	private final long fenetreReplicaMs;
+
+	@Autowired
+	public VersionsEntites(@Value("${kaddem.etag.lignes-max:100000}") int lignesMax,
+						   @Value("${kaddem.datasource.routing.enabled:false}") boolean replicas,
+						   @Value("${kaddem.datasource.routing.retard-max-secondes:5}") long retardMaxSecondes,
+						   @Value("${kaddem.datasource.routing.intervalle-verification-ms:5000}") long intervalleMs) {
+		this(lignesMax, replicas ? retardMaxSecondes * 1000 + intervalleMs : 0);
+	}
+
+	VersionsEntites(int lignesMax, long fenetreReplicaMs) {
+		this.lignesMax = lignesMax;
+		this.fenetreReplicaMs = fenetreReplicaMs;
+	}
+
+	// strong tag of a whole collection, the optional dependances being the types embedded in its JSON
+	public String etag(Class<?> type, Class<?>... dependances){
+		lecturePrimaireSiRecent(type, dependances);
+		StringBuilder tag = new StringBuilder("\"").append(type.getSimpleName()).append('-').append(nonce)
+				.append('-').append(version(type));
+		for (Class<?> dependance : dependances) {
+			tag.append('.').append(version(dependance));
+		}
+		return tag.append('"').toString();
+	}
+
+	public String etag(Class<?> type, Object id, Class<?>... dependances){
+		lecturePrimaireSiRecent(type, dependances);
+		Versions versions = versionsParType.get(type);
+		long versionLigne = 0;
+		if (versions != null) {
+			// lignes before plancher : oublier() writes them in the opposite order
+			versionLigne = versions.lignes.getOrDefault(id, 0L);
+			versionLigne = Math.max(versionLigne, versions.plancher);
+		}
+		StringBuilder tag = new StringBuilder("\"").append(type.getSimpleName()).append('-').append(id).append('-')
+				.append(nonce).append('-').append(versionLigne);
+		for (Class<?> dependance : dependances) {
+			tag.append('.').append(version(dependance));
+		}
+		return tag.append('"').toString();
+	}
+
+	public void modifier(Class<?> type){
+		apresCommit(() -> {
+			Versions versions = versions(type);
+			synchronized (versions) {
+				versions.oublier(versions.compteur.incrementAndGet());
+				versions.ecriture = System.currentTimeMillis();
+			}
+		});
+	}
+
+	public void modifier(Class<?> type, Object id){
+		modifier(type, id == null ? Collections.emptyList() : Collections.singletonList(id));
+	}
+
+	public void modifier(Class<?> type, Collection<?> ids){
+		apresCommit(() -> {
+			Versions versions = versions(type);
+			synchronized (versions) {
+				long version = versions.compteur.incrementAndGet();
+				if (versions.lignes.size() + ids.size() > lignesMax) {
+					versions.oublier(version);
+				} else {
+					ids.forEach(id -> versions.lignes.put(id, version));
+				}
+				versions.ecriture = System.currentTimeMillis();
+			}
+		});
+	}
+
+	// per type : a row written recently sends the reads of its whole type to the primary, for that window only
+	private void lecturePrimaireSiRecent(Class<?> type, Class<?>[] dependances){
+		if (fenetreReplicaMs <= 0) {
+			return;
+		}
+		long limite = System.currentTimeMillis() - fenetreReplicaMs;
+		boolean recent = ecriture(type) > limite;
+		for (Class<?> dependance : dependances) {
+			recent |= ecriture(dependance) > limite;
+		}
+		if (recent) {
+			LecturePrimaire.demander();
+		}
+	}
+
+	private long ecriture(Class<?> type){
+		Versions versions = versionsParType.get(type);
+		return versions == null ? 0 : versions.ecriture;
+	}
+
+	private long version(Class<?> type){
+		Versions versions = versionsParType.get(type);
+		return versions == null ? 0 : versions.compteur.get();
+	}
+
+	private Versions versions(Class<?> type){
+		return versionsParType.computeIfAbsent(type, t -> new Versions());
+	}
+
+	private static void apresCommit(Runnable increment){
+		if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+			increment.run();
+			return;
+		}
+		TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+			@Override
+			public void afterCommit() {
+				increment.run();
+			}
+		});
+	}
+
+	// written under its own monitor, read without lock
+	private static final class Versions {
+		private final AtomicLong compteur = new AtomicLong();
+		// every row not in lignes is at this version
+		private volatile long plancher;
+		private volatile Map<Object, Long> lignes = new ConcurrentHashMap<>();
+		// wall clock of the last bump, compared with the replica lag window
+		private volatile long ecriture;
+
+		void oublier(long version) {
+			plancher = version;
+			lignes = new ConcurrentHashMap<>();
+		}
+	}
+}
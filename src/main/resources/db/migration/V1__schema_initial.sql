@@ -0,0 +1,72 @@
+-- Schema as generated by Hibernate (MySQL57Dialect) up to this point, so that existing databases created with
+-- ddl-auto=update can be baselined at version 1 (spring.flyway.baseline-on-migrate).
+
+CREATE TABLE universite (
+    id_univ INT NOT NULL AUTO_INCREMENT,
+    nom_univ VARCHAR(255),
+    PRIMARY KEY (id_univ)
+) ENGINE = InnoDB;
+
+CREATE TABLE departement (
+    id_depart INT NOT NULL AUTO_INCREMENT,
+    nom_depart VARCHAR(255),
+    PRIMARY KEY (id_depart)
+) ENGINE = InnoDB;
+
+CREATE TABLE universite_departements (
+    universite_id_univ INT NOT NULL,
+    departements_id_depart INT NOT NULL,
+    PRIMARY KEY (universite_id_univ, departements_id_depart),
+    CONSTRAINT uk_universite_departements_departement UNIQUE (departements_id_depart),
+    CONSTRAINT fk_universite_departements_universite FOREIGN KEY (universite_id_univ) REFERENCES universite (id_univ),
+    CONSTRAINT fk_universite_departements_departement FOREIGN KEY (departements_id_depart) REFERENCES departement (id_depart)
+) ENGINE = InnoDB;
+
+CREATE TABLE etudiant (
+    id_etudiant INT NOT NULL AUTO_INCREMENT,
+    nom_e VARCHAR(255),
+    prenom_e VARCHAR(255),
+    op VARCHAR(255),
+    departement_id_depart INT,
+    PRIMARY KEY (id_etudiant),
+    INDEX idx_etudiant_nom_prenom (nom_e, prenom_e),
+    CONSTRAINT fk_etudiant_departement FOREIGN KEY (departement_id_depart) REFERENCES departement (id_depart)
+) ENGINE = InnoDB;
+
+CREATE TABLE detail_equipe (
+    id_detail_equipe INT NOT NULL AUTO_INCREMENT,
+    salle INT,
+    thematique VARCHAR(255),
+    PRIMARY KEY (id_detail_equipe)
+) ENGINE = InnoDB;
+
+CREATE TABLE equipe (
+    id_equipe INT NOT NULL AUTO_INCREMENT,
+    nom_equipe VARCHAR(255),
+    niveau VARCHAR(255),
+    detail_equipe_id_detail_equipe INT,
+    PRIMARY KEY (id_equipe),
+    CONSTRAINT uk_equipe_detail_equipe UNIQUE (detail_equipe_id_detail_equipe),
+    CONSTRAINT fk_equipe_detail_equipe FOREIGN KEY (detail_equipe_id_detail_equipe) REFERENCES detail_equipe (id_detail_equipe)
+) ENGINE = InnoDB;
+
+CREATE TABLE equipe_etudiants (
+    equipe_id_equipe INT NOT NULL,
+    etudiants_id_etudiant INT NOT NULL,
+    PRIMARY KEY (equipe_id_equipe, etudiants_id_etudiant),
+    CONSTRAINT fk_equipe_etudiants_equipe FOREIGN KEY (equipe_id_equipe) REFERENCES equipe (id_equipe),
+    CONSTRAINT fk_equipe_etudiants_etudiant FOREIGN KEY (etudiants_id_etudiant) REFERENCES etudiant (id_etudiant)
+) ENGINE = InnoDB;
+
+CREATE TABLE contrat (
+    id_contrat INT NOT NULL AUTO_INCREMENT,
+    date_debut_contrat DATE,
+    date_fin_contrat DATE,
+    specialite VARCHAR(255),
+    archive BIT,
+    montant_contrat INT,
+    etudiant_id_etudiant INT,
+    PRIMARY KEY (id_contrat),
+    INDEX idx_contrat_etudiant_archive (etudiant_id_etudiant, archive),
+    CONSTRAINT fk_contrat_etudiant FOREIGN KEY (etudiant_id_etudiant) REFERENCES etudiant (id_etudiant)
+) ENGINE = InnoDB;
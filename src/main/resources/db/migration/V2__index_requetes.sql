@@ -0,0 +1,56 @@
+-- Indexes matched to the repository queries. Databases baselined at version 1 may come from MySQL5Dialect
+-- (MyISAM tables, no foreign key indexes) or may miss the indexes declared on the entities, hence the checks.
+
+DROP PROCEDURE IF EXISTS kaddem_innodb;
+DROP PROCEDURE IF EXISTS kaddem_creer_index;
+
+DELIMITER //
+CREATE PROCEDURE kaddem_innodb(IN nom_table VARCHAR(64))
+BEGIN
+    IF EXISTS (SELECT 1 FROM information_schema.TABLES WHERE TABLE_SCHEMA = DATABASE()
+               AND TABLE_NAME = nom_table AND ENGINE <> 'InnoDB') THEN
+        SET @ddl = CONCAT('ALTER TABLE ', nom_table, ' ENGINE = InnoDB');
+        PREPARE instruction FROM @ddl;
+        EXECUTE instruction;
+        DEALLOCATE PREPARE instruction;
+    END IF;
+END //
+
+CREATE PROCEDURE kaddem_creer_index(IN nom_table VARCHAR(64), IN nom_index VARCHAR(64), IN colonnes VARCHAR(255))
+BEGIN
+    IF NOT EXISTS (SELECT 1 FROM information_schema.STATISTICS WHERE TABLE_SCHEMA = DATABASE()
+                   AND TABLE_NAME = nom_table AND INDEX_NAME = nom_index) THEN
+        SET @ddl = CONCAT('CREATE INDEX ', nom_index, ' ON ', nom_table, ' (', colonnes, ')');
+        PREPARE instruction FROM @ddl;
+        EXECUTE instruction;
+        DEALLOCATE PREPARE instruction;
+    END IF;
+END //
+DELIMITER ;
+
+-- row locks (findForUpdateByNomEAndPrenomE) and transactions need InnoDB
+CALL kaddem_innodb('universite');
+CALL kaddem_innodb('departement');
+CALL kaddem_innodb('universite_departements');
+CALL kaddem_innodb('etudiant');
+CALL kaddem_innodb('detail_equipe');
+CALL kaddem_innodb('equipe');
+CALL kaddem_innodb('equipe_etudiants');
+CALL kaddem_innodb('contrat');
+
+-- EtudiantRepository.findByNomEAndPrenomE / findForUpdateByNomEAndPrenomE
+CALL kaddem_creer_index('etudiant', 'idx_etudiant_nom_prenom', 'nom_e, prenom_e');
+-- EtudiantRepository.findEtudiantsByDepartement_IdDepart (replaces the implicit foreign key index)
+CALL kaddem_creer_index('etudiant', 'idx_etudiant_departement', 'departement_id_depart');
+-- ContratRepository.countContratsActifs, the EXISTS of EquipeRepository.findEquipesAPromouvoir
+CALL kaddem_creer_index('contrat', 'idx_contrat_etudiant_archive', 'etudiant_id_etudiant, archive');
+-- ContratRepository.getnbContratsValides : one index per branch of the OR, merged by the optimizer
+CALL kaddem_creer_index('contrat', 'idx_contrat_fin_archive', 'date_fin_contrat, archive');
+CALL kaddem_creer_index('contrat', 'idx_contrat_archive_debut', 'archive, date_debut_contrat');
+-- ContratRepository.statistiquesParSpecialite : range on the start date, covering the grouped columns
+CALL kaddem_creer_index('contrat', 'idx_contrat_periode', 'date_debut_contrat, date_fin_contrat, specialite, montant_contrat');
+-- equipes of a student (join table read from the student side in findEquipesAPromouvoir)
+CALL kaddem_creer_index('equipe_etudiants', 'idx_equipe_etudiants_etudiant', 'etudiants_id_etudiant, equipe_id_equipe');
+
+DROP PROCEDURE kaddem_innodb;
+DROP PROCEDURE kaddem_creer_index;
@@ -0,0 +1,37 @@
+-- Coordination of the scheduled jobs between instances (jobs.ExecuteurJobs) : a lease per job, one row per run
+-- and its id-range partitions, each with its checkpoint. Times are database times, never node clocks.
+
+CREATE TABLE job_bail (
+    nom_job VARCHAR(64) NOT NULL,
+    proprietaire VARCHAR(128) NOT NULL,
+    expire_le DATETIME(3) NOT NULL,
+    PRIMARY KEY (nom_job)
+) ENGINE = InnoDB;
+
+CREATE TABLE job_execution (
+    id_execution BIGINT NOT NULL AUTO_INCREMENT,
+    nom_job VARCHAR(64) NOT NULL,
+    cle_execution VARCHAR(64) NOT NULL,
+    statut VARCHAR(16) NOT NULL,
+    debut DATETIME(3) NOT NULL,
+    fin DATETIME(3),
+    lignes BIGINT NOT NULL DEFAULT 0,
+    PRIMARY KEY (id_execution),
+    CONSTRAINT uk_job_execution_cle UNIQUE (nom_job, cle_execution),
+    INDEX idx_job_execution_statut (statut)
+) ENGINE = InnoDB;
+
+CREATE TABLE job_partition (
+    id_execution BIGINT NOT NULL,
+    numero INT NOT NULL,
+    id_debut INT NOT NULL,
+    id_fin INT NOT NULL,
+    statut VARCHAR(16) NOT NULL,
+    proprietaire VARCHAR(128),
+    expire_le DATETIME(3),
+    dernier_id INT,
+    lignes BIGINT NOT NULL DEFAULT 0,
+    tentatives INT NOT NULL DEFAULT 0,
+    PRIMARY KEY (id_execution, numero),
+    CONSTRAINT fk_job_partition_execution FOREIGN KEY (id_execution) REFERENCES job_execution (id_execution)
+) ENGINE = InnoDB;
@@ -0,0 +1,9 @@
+-- Per-team count of members holding a qualifying contract (services.AgregatsEquipes), with the contract end-date
+-- threshold it was counted at. NULL : never counted, the first promotion run or reconciliation fills it.
+
+ALTER TABLE equipe
+    ADD COLUMN nb_etudiants_qualifies INT NOT NULL DEFAULT 0,
+    ADD COLUMN seuil_qualification DATE NULL;
+
+-- EquipeRepository.findEquipesAPromouvoir
+CREATE INDEX idx_equipe_niveau_qualifies ON equipe (niveau, nb_etudiants_qualifies);
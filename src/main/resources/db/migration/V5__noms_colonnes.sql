@@ -0,0 +1,25 @@
+-- Databases created with ddl-auto=update and baselined at version 1 got the default Hibernate names for three
+-- columns : etudiant.nome / prenome and equipe_etudiants.equipes_id_equipe (named after the inverse side).
+-- The entities now map the names of V1, which the native queries use, hence the renames where needed.
+
+DROP PROCEDURE IF EXISTS kaddem_renommer_colonne;
+
+DELIMITER //
+CREATE PROCEDURE kaddem_renommer_colonne(IN nom_table VARCHAR(64), IN ancien_nom VARCHAR(64), IN nouveau_nom VARCHAR(64),
+                                         IN definition VARCHAR(255))
+BEGIN
+    IF EXISTS (SELECT 1 FROM information_schema.COLUMNS WHERE TABLE_SCHEMA = DATABASE()
+               AND TABLE_NAME = nom_table AND COLUMN_NAME = ancien_nom) THEN
+        SET @ddl = CONCAT('ALTER TABLE ', nom_table, ' CHANGE ', ancien_nom, ' ', nouveau_nom, ' ', definition);
+        PREPARE instruction FROM @ddl;
+        EXECUTE instruction;
+        DEALLOCATE PREPARE instruction;
+    END IF;
+END //
+DELIMITER ;
+
+CALL kaddem_renommer_colonne('etudiant', 'nome', 'nom_e', 'VARCHAR(255)');
+CALL kaddem_renommer_colonne('etudiant', 'prenome', 'prenom_e', 'VARCHAR(255)');
+CALL kaddem_renommer_colonne('equipe_etudiants', 'equipes_id_equipe', 'equipe_id_equipe', 'INT NOT NULL');
+
+DROP PROCEDURE kaddem_renommer_colonne;
@@ -0,0 +1,48 @@
+package tn.esprit.spring.kaddem;
+
+import net.ttddyy.dsproxy.listener.MethodExecutionContext;
+import net.ttddyy.dsproxy.listener.MethodExecutionListener;
+import net.ttddyy.dsproxy.support.ProxyDataSource;
+import net.ttddyy.dsproxy.support.ProxyDataSourceBuilder;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+
+import javax.sql.DataSource;
+import java.sql.Statement;
+
+/**
+ * The streamed repository queries ask for fetch size Integer.MIN_VALUE, Connector/J's row by row mode, which
+ * H2 rejects : the test datasources are wrapped so that a negative fetch size becomes the driver default.
+ */
+@TestConfiguration
+public class CompatibiliteH2 {
+
+	@Bean
+	public static BeanPostProcessor fetchSizeH2() {
+		return new BeanPostProcessor() {
+			@Override
+			public Object postProcessAfterInitialization(Object bean, String beanName) {
+				if (!(bean instanceof DataSource) || bean instanceof ProxyDataSource) {
+					return bean;
+				}
+				return ProxyDataSourceBuilder.create((DataSource) bean).name(beanName)
+						.methodListener(new FetchSizeH2()).build();
+			}
+		};
+	}
+
+	private static final class FetchSizeH2 implements MethodExecutionListener {
+		@Override
+		public void beforeMethod(MethodExecutionContext contexte) {
+			if (contexte.getTarget() instanceof Statement && "setFetchSize".equals(contexte.getMethod().getName())
+					&& (Integer) contexte.getMethodArgs()[0] < 0) {
+				contexte.setMethodArgs(new Object[]{0});
+			}
+		}
+
+		@Override
+		public void afterMethod(MethodExecutionContext contexte) {
+		}
+	}
+}
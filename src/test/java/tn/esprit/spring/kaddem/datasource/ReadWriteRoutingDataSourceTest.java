@@ -0,0 +1,131 @@
+package tn.esprit.spring.kaddem.datasource;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Routing between two embedded databases, each telling which one it is : read-only transactions go to the
+ * replica while ReplicaLagMonitor keeps it in the rotation, everything else to the primary. The replica's lag
+ * is read from a table standing in for SHOW SLAVE STATUS.
+ */
+class ReadWriteRoutingDataSourceTest {
+	private EmbeddedDatabase primaire;
+	private EmbeddedDatabase secondaire;
+	private Replica replica;
+	private ReplicaLagMonitor moniteur;
+	private JdbcTemplate jdbcTemplate;
+	private TransactionTemplate ecriture;
+	private TransactionTemplate lecture;
+
+	@BeforeEach
+	void demarrer() {
+		primaire = base("primaire");
+		secondaire = base("replica");
+		new JdbcTemplate(secondaire).execute("CREATE TABLE statut_replica (Seconds_Behind_Master BIGINT)");
+		new JdbcTemplate(secondaire).update("INSERT INTO statut_replica VALUES (0)");
+
+		replica = new Replica("replica-0", secondaire);
+		RoutingDataSourceProperties properties = new RoutingDataSourceProperties();
+		properties.setRetardMaxSecondes(5);
+		properties.setRequeteRetard("SELECT Seconds_Behind_Master FROM statut_replica");
+		moniteur = new ReplicaLagMonitor(List.of(replica), properties);
+
+		LazyConnectionDataSourceProxy routage = new LazyConnectionDataSourceProxy(
+				new ReadWriteRoutingDataSource(primaire, List.of(replica)));
+		jdbcTemplate = new JdbcTemplate(routage);
+		DataSourceTransactionManager transactionManager = new DataSourceTransactionManager(routage);
+		ecriture = new TransactionTemplate(transactionManager);
+		lecture = new TransactionTemplate(transactionManager);
+		lecture.setReadOnly(true);
+	}
+
+	@AfterEach
+	void arreter() {
+		primaire.shutdown();
+		secondaire.shutdown();
+	}
+
+	@Test
+	void lecturesSurLaReplicaEcrituresSurLePrimaire() {
+		moniteur.verifier();
+
+		assertEquals("replica", lecture.execute(status -> base()));
+		assertEquals("primaire", ecriture.execute(status -> base()));
+		// outside any transaction : the primary
+		assertEquals("primaire", base());
+	}
+
+	@Test
+	void lecturePrimaireDemandeeSurLePrimaire() {
+		moniteur.verifier();
+
+		LecturePrimaire.demander();
+		try {
+			assertEquals("primaire", lecture.execute(status -> base()));
+		} finally {
+			LecturePrimaire.liberer();
+		}
+		assertEquals("replica", lecture.execute(status -> base()));
+	}
+
+	@Test
+	void replicaEnRetardEcarteePuisReintegree() {
+		retard(30L);
+		moniteur.verifier();
+		assertFalse(replica.isDisponible());
+		assertEquals("primaire", lecture.execute(status -> base()));
+
+		retard(2L);
+		moniteur.verifier();
+		assertTrue(replica.isDisponible());
+		assertEquals("replica", lecture.execute(status -> base()));
+	}
+
+	@Test
+	void replicationArreteeRetombeSurLePrimaire() {
+		retard(null);
+		moniteur.verifier();
+
+		assertFalse(replica.isDisponible());
+		assertEquals("primaire", lecture.execute(status -> base()));
+	}
+
+	@Test
+	void replicaInjoignableRetombeSurLePrimaire() {
+		secondaire.shutdown();
+		moniteur.verifier();
+
+		assertFalse(replica.isDisponible());
+		assertEquals("primaire", lecture.execute(status -> base()));
+	}
+
+	private String base() {
+		return jdbcTemplate.queryForObject("SELECT nom FROM base", String.class);
+	}
+
+	private void retard(Long secondes) {
+		new JdbcTemplate(secondaire).update("UPDATE statut_replica SET Seconds_Behind_Master = ?", secondes);
+	}
+
+	private static EmbeddedDatabase base(String nom) {
+		EmbeddedDatabase base = new EmbeddedDatabaseBuilder().setType(EmbeddedDatabaseType.H2).setName(nom)
+				.generateUniqueName(true).build();
+		new JdbcTemplate(base).execute("CREATE TABLE base (nom VARCHAR(16))");
+		new JdbcTemplate(base).update("INSERT INTO base VALUES (?)", nom);
+		return base;
+	}
+}
@@ -0,0 +1,41 @@
+package tn.esprit.spring.kaddem.datasource;
+
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.autoconfigure.AutoConfigurations;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceAutoConfiguration;
+import org.springframework.boot.test.context.runner.ApplicationContextRunner;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RoutingDataSourceConfigTest {
+	private final ApplicationContextRunner contexte = new ApplicationContextRunner()
+			.withConfiguration(AutoConfigurations.of(DataSourceAutoConfiguration.class))
+			.withUserConfiguration(RoutingDataSourceConfig.class)
+			.withBean(MeterRegistry.class, SimpleMeterRegistry::new)
+			.withPropertyValues(
+					"kaddem.datasource.routing.enabled=true",
+					"kaddem.datasource.routing.replicas[0].url=jdbc:h2:mem:replica",
+					"spring.datasource.url=jdbc:h2:mem:primaire",
+					"spring.datasource.hikari.maximum-pool-size=12");
+
+	@Test
+	void poolPrimaireConfigureParSpringDatasourceHikari() {
+		contexte.withPropertyValues("spring.jpa.open-in-view=false").run(context -> {
+			DataSource routage = ((LazyConnectionDataSourceProxy) context.getBean(DataSource.class)).getTargetDataSource();
+			HikariDataSource primaire = (HikariDataSource) ((ReadWriteRoutingDataSource) routage).getResolvedDefaultDataSource();
+			assertThat(primaire.getMaximumPoolSize()).isEqualTo(12);
+			assertThat(primaire.getPoolName()).isEqualTo("primaire");
+		});
+	}
+
+	@Test
+	void refuseOpenInView() {
+		contexte.run(context -> assertThat(context).hasFailed());
+	}
+}
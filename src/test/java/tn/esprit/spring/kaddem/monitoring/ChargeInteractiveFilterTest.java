@@ -0,0 +1,55 @@
+package tn.esprit.spring.kaddem.monitoring;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockAsyncContext;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Requests in flight : a synchronous request leaves the count when its dispatch returns, an asynchronous one
+ * (a streamed body) only when its async processing completes.
+ */
+class ChargeInteractiveFilterTest {
+	private final ChargeInteractiveFilter filter = new ChargeInteractiveFilter(new SimpleMeterRegistry());
+
+	@Test
+	void requeteSynchrone() throws Exception {
+		filter.doFilter(new MockHttpServletRequest("GET", "/contrat/contrats"), new MockHttpServletResponse(),
+				(req, res) -> assertEquals(1, filter.getRequetesActives()));
+
+		assertEquals(0, filter.getRequetesActives());
+	}
+
+	@Test
+	void requeteAsynchroneCompteeJusquALaFin() throws Exception {
+		MockHttpServletRequest request = new MockHttpServletRequest("GET", "/contrat/contrats/stream");
+		request.setServletPath("/contrat/contrats/stream");
+		request.setAsyncSupported(true);
+		filter.doFilter(request, new MockHttpServletResponse(), (req, res) -> req.startAsync());
+
+		// the body is still being written
+		assertEquals(1, filter.getRequetesActives());
+
+		((MockAsyncContext) request.getAsyncContext()).complete();
+		assertEquals(0, filter.getRequetesActives());
+	}
+
+	@Test
+	void actuatorIgnore() throws Exception {
+		MockHttpServletRequest request = new MockHttpServletRequest("GET", "/actuator/prometheus");
+		request.setServletPath("/actuator/prometheus");
+		filter.doFilter(request, new MockHttpServletResponse(),
+				(req, res) -> assertEquals(0, filter.getRequetesActives()));
+	}
+
+	@Test
+	void exportIgnore() throws Exception {
+		MockHttpServletRequest request = new MockHttpServletRequest("GET", "/etudiant/export");
+		request.setServletPath("/etudiant/export");
+		filter.doFilter(request, new MockHttpServletResponse(),
+				(req, res) -> assertEquals(0, filter.getRequetesActives()));
+	}
+}
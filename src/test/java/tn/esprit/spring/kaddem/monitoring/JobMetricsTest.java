@@ -0,0 +1,36 @@
+package tn.esprit.spring.kaddem.monitoring;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * A run that throws (ExecuteurJobs.executer on an ECHEC run) is timed as echec and leaves kaddem.job.last.success
+ * where it was, the value the staleness alert watches.
+ */
+class JobMetricsTest {
+	private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+	private final JobMetrics jobMetrics = new JobMetrics(registry);
+
+	@Test
+	void echecNAvancePasLeDernierSucces() {
+		assertThrows(IllegalStateException.class, () -> jobMetrics.executer("job", () -> {
+			throw new IllegalStateException("exécution en échec");
+		}));
+
+		assertEquals(0, registry.get("kaddem.job.last.success").tag("job", "job").gauge().value());
+		assertEquals(1, registry.get("kaddem.job.duration").tags("job", "job", "result", "echec").timer().count());
+	}
+
+	@Test
+	void succes() {
+		jobMetrics.executer("job", () -> 12);
+
+		assertTrue(registry.get("kaddem.job.last.success").tag("job", "job").gauge().value() > 0);
+		assertEquals(12, registry.get("kaddem.job.rows").tag("job", "job").counter().count());
+		assertEquals(1, registry.get("kaddem.job.duration").tags("job", "job", "result", "succes").timer().count());
+	}
+}
@@ -0,0 +1,81 @@
+package tn.esprit.spring.kaddem.monitoring;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import net.ttddyy.dsproxy.ExecutionInfo;
+import net.ttddyy.dsproxy.QueryInfo;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.HandlerMapping;
+
+import javax.servlet.FilterChain;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * The budget of QueryBudgetFilter : enforced by the statement listener while the request runs, so the statement
+ * over budget never executes and the response is still uncommitted.
+ */
+class QueryBudgetFilterTest {
+	private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+	private final SqlExecutionListener listener = new SqlExecutionListener(registry, 200);
+
+	@QueryBudget(2)
+	public void endpoint() {
+		// handler of the requests below
+	}
+
+	@Test
+	void budgetDepasseEchoueAvantLaRequeteEnTrop() throws Exception {
+		MockHttpServletRequest request = requete();
+		MockHttpServletResponse response = new MockHttpServletResponse();
+		int[] executees = {0};
+		FilterChain chaine = (req, res) -> {
+			for (int i = 0; i < 3; i++) {
+				executer();
+				executees[0]++;
+			}
+			res.getWriter().write("ok");
+		};
+
+		assertThrows(IllegalStateException.class,
+				() -> new QueryBudgetFilter(registry, 30, true).doFilter(request, response, chaine));
+		assertEquals(2, executees[0]);
+		assertFalse(response.isCommitted());
+		assertEquals("", response.getContentAsString());
+	}
+
+	@Test
+	void budgetDepasseJournaliseSansEchec() throws Exception {
+		MockHttpServletRequest request = requete();
+		MockHttpServletResponse response = new MockHttpServletResponse();
+		FilterChain chaine = (req, res) -> {
+			for (int i = 0; i < 3; i++) {
+				executer();
+			}
+		};
+
+		new QueryBudgetFilter(registry, 30, false).doFilter(request, response, chaine);
+		assertEquals(3, (long) registry.get("kaddem.http.requete.sql").summary().max());
+	}
+
+	// what the datasource proxy does around every statement
+	private void executer() {
+		List<QueryInfo> requetes = List.of(new QueryInfo("select 1"));
+		ExecutionInfo execution = new ExecutionInfo();
+		listener.beforeQuery(execution, requetes);
+		listener.afterQuery(execution, requetes);
+	}
+
+	private MockHttpServletRequest requete() throws NoSuchMethodException {
+		MockHttpServletRequest request = new MockHttpServletRequest("GET", "/contrat/retrieve-contrat/1");
+		request.setAttribute(HandlerMapping.BEST_MATCHING_HANDLER_ATTRIBUTE,
+				new HandlerMethod(this, QueryBudgetFilterTest.class.getMethod("endpoint")));
+		request.setAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE, "/contrat/retrieve-contrat/{contrat-id}");
+		return request;
+	}
+}
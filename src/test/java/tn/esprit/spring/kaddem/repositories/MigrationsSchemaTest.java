@@ -0,0 +1,98 @@
+package tn.esprit.spring.kaddem.repositories;
+
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.testcontainers.containers.MySQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.Index;
+import javax.persistence.JoinTable;
+import javax.persistence.Table;
+import java.lang.reflect.Field;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * The production path on a real MySQL : Flyway runs V1 to the last migration, then Hibernate validates the
+ * entities against that schema (ddl-auto=validate) while the context starts. Every @Index the entities declare,
+ * copies of the migrations for the schemas Hibernate generates, must exist in the migrated schema under the same
+ * name and with the same columns. Skipped where Docker is not available.
+ */
+@SpringBootTest
+@Testcontainers(disabledWithoutDocker = true)
+class MigrationsSchemaTest {
+	@Container
+	static final MySQLContainer<?> MYSQL = new MySQLContainer<>("mysql:8.0.31").withDatabaseName("kaddemdb");
+
+	@Autowired
+	Flyway flyway;
+	@Autowired
+	JdbcTemplate jdbcTemplate;
+	@Autowired
+	EntityManagerFactory entityManagerFactory;
+
+	@DynamicPropertySource
+	static void mysql(DynamicPropertyRegistry proprietes) {
+		proprietes.add("spring.datasource.url", MYSQL::getJdbcUrl);
+		proprietes.add("spring.datasource.username", MYSQL::getUsername);
+		proprietes.add("spring.datasource.password", MYSQL::getPassword);
+	}
+
+	@Test
+	void toutesLesMigrationsAppliquees() {
+		assertEquals(0, flyway.info().pending().length);
+	}
+
+	@Test
+	void indexDesEntitesDansLeSchema() {
+		Map<String, String> schema = new HashMap<>();
+		jdbcTemplate.query("SELECT TABLE_NAME, INDEX_NAME, GROUP_CONCAT(COLUMN_NAME ORDER BY SEQ_IN_INDEX) AS colonnes"
+				+ " FROM information_schema.STATISTICS WHERE TABLE_SCHEMA = DATABASE() GROUP BY TABLE_NAME, INDEX_NAME",
+				rs -> {
+					schema.put(rs.getString("TABLE_NAME") + "." + rs.getString("INDEX_NAME"), rs.getString("colonnes"));
+				});
+
+		Map<String, String> entites = new HashMap<>();
+		entityManagerFactory.getMetamodel().getEntities().forEach(entite -> {
+			Class<?> type = entite.getJavaType();
+			Table table = type.getAnnotation(Table.class);
+			String nomTable = table == null || table.name().isEmpty() ? physique(type.getSimpleName()) : table.name();
+			if (table != null) {
+				ajouter(entites, nomTable, table.indexes());
+			}
+			for (Field champ : type.getDeclaredFields()) {
+				JoinTable jointure = champ.getAnnotation(JoinTable.class);
+				if (jointure != null) {
+					ajouter(entites, jointure.name(), jointure.indexes());
+				}
+			}
+		});
+
+		entites.forEach((index, colonnes) -> assertEquals(colonnes, schema.get(index), index));
+	}
+
+	private static void ajouter(Map<String, String> entites, String table, Index[] indexes) {
+		for (Index index : indexes) {
+			List<String> colonnes = Arrays.stream(index.columnList().split(","))
+					.map(String::trim).map(MigrationsSchemaTest::physique).collect(Collectors.toList());
+			entites.put(table + "." + index.name(), String.join(",", colonnes));
+		}
+	}
+
+	// Spring's physical naming : camel case to lower case words joined by underscores
+	private static String physique(String nom) {
+		return nom.replaceAll("([a-z0-9])([A-Z])", "$1_$2").toLowerCase();
+	}
+}
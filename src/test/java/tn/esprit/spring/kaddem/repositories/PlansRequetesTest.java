@@ -0,0 +1,165 @@
+package tn.esprit.spring.kaddem.repositories;
+
+import net.ttddyy.dsproxy.ExecutionInfo;
+import net.ttddyy.dsproxy.QueryInfo;
+import net.ttddyy.dsproxy.listener.QueryExecutionListener;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import tn.esprit.spring.kaddem.CompatibiliteH2;
+import tn.esprit.spring.kaddem.entities.Niveau;
+import tn.esprit.spring.kaddem.services.AgregatsEquipes;
+
+import java.sql.Date;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * EXPLAIN of the statements the repositories really send, captured on the datasource proxy with their parameters :
+ * each one must go through the index of V2__index_requetes.sql (or V4) written for it, never a full scan. The
+ * entities declare the same indexes, so the H2 schema has them under the same names.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+@TestPropertySource(properties = "spring.datasource.url=jdbc:h2:mem:plans;MODE=MySQL;DB_CLOSE_DELAY=-1")
+@Import({CompatibiliteH2.class, PlansRequetesTest.Capture.class})
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class PlansRequetesTest {
+	private static final Date DEBUT = Date.valueOf("2021-01-01");
+	private static final Date FIN = Date.valueOf("2021-03-31");
+
+	@Autowired
+	Capture capture;
+	@Autowired
+	JdbcTemplate jdbcTemplate;
+	@Autowired
+	PlatformTransactionManager transactionManager;
+	@Autowired
+	ContratRepository contratRepository;
+	@Autowired
+	EtudiantRepository etudiantRepository;
+	@Autowired
+	EquipeRepository equipeRepository;
+	@Autowired
+	AgregatsEquipes agregatsEquipes;
+
+	// enough rows for the optimizer to prefer a selective index to a scan, then ANALYZE for the selectivities
+	@BeforeAll
+	void remplir() {
+		jdbcTemplate.update("INSERT INTO departement (nom_depart) SELECT CONCAT('D', X) FROM SYSTEM_RANGE(1, 20)");
+		jdbcTemplate.update("INSERT INTO etudiant (nom_e, prenom_e, op, departement_id_depart)"
+				+ " SELECT CONCAT('N', X), CONCAT('P', X), 'GAMIX', MOD(X, 20) + 1 FROM SYSTEM_RANGE(1, 2000)");
+		jdbcTemplate.update("INSERT INTO contrat (date_debut_contrat, date_fin_contrat, specialite, archive,"
+				+ " montant_contrat, etudiant_id_etudiant) SELECT DATEADD('DAY', MOD(X, 1500), DATE '2018-01-01'),"
+				+ " DATEADD('DAY', MOD(X, 1500) + 365, DATE '2018-01-01'), 'IA', MOD(X, 2) = 0, 1000, MOD(X, 2000) + 1"
+				+ " FROM SYSTEM_RANGE(1, 5000)");
+		jdbcTemplate.update("INSERT INTO equipe (nom_equipe, niveau) SELECT CONCAT('E', X),"
+				+ " CASEWHEN(MOD(X, 3) = 0, 'JUNIOR', CASEWHEN(MOD(X, 3) = 1, 'SENIOR', 'EXPERT')) FROM SYSTEM_RANGE(1, 500)");
+		jdbcTemplate.update("INSERT INTO equipe_etudiants (equipe_id_equipe, etudiants_id_etudiant)"
+				+ " SELECT MOD(X, 500) + 1, X FROM SYSTEM_RANGE(1, 2000)");
+		jdbcTemplate.execute("ANALYZE");
+	}
+
+	@Test
+	void etudiantParNomEtPrenom() {
+		assertIndex("IDX_ETUDIANT_NOM_PRENOM", capturer(() -> etudiantRepository.findByNomEAndPrenomE("N1", "P1")));
+		assertIndex("IDX_ETUDIANT_NOM_PRENOM", capturer(() -> new TransactionTemplate(transactionManager)
+				.executeWithoutResult(status -> etudiantRepository.findForUpdateByNomEAndPrenomE("N1", "P1"))));
+	}
+
+	@Test
+	void etudiantsParDepartement() {
+		assertIndex("IDX_ETUDIANT_DEPARTEMENT",
+				capturer(() -> etudiantRepository.findVuesByDepartement(3, PageRequest.of(0, 20))));
+		assertIndex("IDX_ETUDIANT_DEPARTEMENT", capturer(() -> etudiantRepository.countByDepartement(3)));
+	}
+
+	@Test
+	void contratsActifsDUnEtudiant() {
+		assertIndex("IDX_CONTRAT_ETUDIANT_ARCHIVE", capturer(() -> contratRepository.countContratsActifs(7)));
+	}
+
+	// MySQL merges one index per branch of the OR (index_merge), H2 cannot : each branch is checked on its own
+	@Test
+	void contratsValides() {
+		assertIndex("IDX_CONTRAT_ARCHIVE_DEBUT", "SELECT COUNT(*) FROM contrat WHERE archive = true"
+				+ " AND date_debut_contrat BETWEEN ? AND ?", DEBUT, FIN);
+		assertIndex("IDX_CONTRAT_FIN_ARCHIVE", "SELECT COUNT(*) FROM contrat WHERE date_fin_contrat BETWEEN ? AND ?",
+				DEBUT, FIN);
+	}
+
+	@Test
+	void statistiquesParSpecialite() {
+		assertIndex("IDX_CONTRAT_PERIODE", capturer(() -> contratRepository.statistiquesParSpecialite(DEBUT, FIN)));
+	}
+
+	@Test
+	void equipesAPromouvoir() {
+		assertIndex("IDX_EQUIPE_NIVEAU_QUALIFIES", capturer(() -> equipeRepository.findEquipesAPromouvoir(
+				List.of(Niveau.JUNIOR, Niveau.SENIOR), 3, 1, Integer.MAX_VALUE)));
+	}
+
+	@Test
+	void equipesDUnEtudiant() {
+		assertIndex("IDX_EQUIPE_ETUDIANTS_ETUDIANT", capturer(() -> agregatsEquipes.equipesDe(7)));
+	}
+
+	// the first statement run by the call, the one of the repository method (an eager association may follow)
+	private QueryInfo capturer(Runnable appel) {
+		capture.requetes.clear();
+		capture.active = true;
+		try {
+			appel.run();
+		} finally {
+			capture.active = false;
+		}
+		assertFalse(capture.requetes.isEmpty());
+		return capture.requetes.get(0);
+	}
+
+	private void assertIndex(String index, QueryInfo requete) {
+		List<Object> parametres = new ArrayList<>();
+		if (!requete.getParametersList().isEmpty()) {
+			requete.getParametersList().get(0).stream()
+					.sorted(Comparator.comparingInt(p -> (Integer) p.getArgs()[0]))
+					.forEach(p -> parametres.add(p.getArgs()[1]));
+		}
+		assertIndex(index, requete.getQuery(), parametres.toArray());
+	}
+
+	private void assertIndex(String index, String sql, Object... parametres) {
+		String plan = jdbcTemplate.queryForObject("EXPLAIN " + sql, String.class, parametres);
+		assertTrue(plan.contains("PUBLIC." + index), () -> index + " absent du plan :\n" + plan);
+		assertFalse(plan.contains("tableScan"), () -> "parcours complet :\n" + plan);
+	}
+
+	// only the statements run while active, what the datasource proxy passes to every listener bean
+	static class Capture implements QueryExecutionListener {
+		final List<QueryInfo> requetes = new ArrayList<>();
+		volatile boolean active;
+
+		@Override
+		public void beforeQuery(ExecutionInfo execInfo, List<QueryInfo> queryInfoList) {
+		}
+
+		@Override
+		public void afterQuery(ExecutionInfo execInfo, List<QueryInfo> queryInfoList) {
+			if (active) {
+				requetes.addAll(queryInfoList);
+			}
+		}
+	}
+}
@@ -0,0 +1,74 @@
+package tn.esprit.spring.kaddem.services;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import tn.esprit.spring.kaddem.CompatibiliteH2;
+import tn.esprit.spring.kaddem.entities.Contrat;
+import tn.esprit.spring.kaddem.entities.Etudiant;
+import tn.esprit.spring.kaddem.entities.Option;
+import tn.esprit.spring.kaddem.entities.Specialite;
+import tn.esprit.spring.kaddem.repositories.ContratRepository;
+import tn.esprit.spring.kaddem.repositories.EtudiantRepository;
+
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * The active-contract cap of affectContratToEtudiant under concurrent assignments of the same student : the
+ * count runs under the student row lock, so the parallel calls cannot all pass it.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+@Import(CompatibiliteH2.class)
+class AffectationContratsConcurrenteTest {
+	private static final int NB_THREADS = 12;
+
+	@Autowired
+	IContratService contratService;
+	@Autowired
+	ContratRepository contratRepository;
+	@Autowired
+	EtudiantRepository etudiantRepository;
+
+	@Test
+	void plafondContratsActifsSousConcurrence() throws Exception {
+		Etudiant etudiant = etudiantRepository.save(new Etudiant("Concurrent", "Affectation", Option.GAMIX));
+		LocalDate debut = LocalDate.now();
+		List<Integer> idContrats = new ArrayList<>();
+		for (int i = 0; i < NB_THREADS; i++) {
+			idContrats.add(contratRepository.save(new Contrat(Date.valueOf(debut), Date.valueOf(debut.plusYears(1)),
+					Specialite.IA, false, 1000)).getIdContrat());
+		}
+
+		ExecutorService executor = Executors.newFixedThreadPool(NB_THREADS);
+		CountDownLatch depart = new CountDownLatch(1);
+		try {
+			List<Future<Contrat>> affectations = new ArrayList<>();
+			for (Integer idContrat : idContrats) {
+				affectations.add(executor.submit(() -> {
+					depart.await();
+					return contratService.affectContratToEtudiant(idContrat, "Concurrent", "Affectation");
+				}));
+			}
+			depart.countDown();
+			for (Future<Contrat> affectation : affectations) {
+				affectation.get();
+			}
+		} finally {
+			executor.shutdown();
+		}
+
+		assertEquals(ContratServiceImpl.NB_CONTRATS_ACTIFS_MAX, contratRepository.countContratsActifs(etudiant.getIdEtudiant()));
+	}
+}
@@ -0,0 +1,93 @@
+package tn.esprit.spring.kaddem.services;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import tn.esprit.spring.kaddem.CompatibiliteH2;
+import tn.esprit.spring.kaddem.dto.ContratSpecialiteStat;
+import tn.esprit.spring.kaddem.entities.Contrat;
+import tn.esprit.spring.kaddem.entities.Specialite;
+import tn.esprit.spring.kaddem.repositories.ContratRepository;
+
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * The scans of the snapshot give the answers of the SQL queries they replace, on one slice of slots or split
+ * across the fork/join pool.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+@Import(CompatibiliteH2.class)
+class ContratSnapshotTest {
+	private static final LocalDate DU = LocalDate.of(2091, 1, 1);
+	private static final LocalDate AU = LocalDate.of(2091, 12, 31);
+
+	@Autowired
+	ContratSnapshot contratSnapshot;
+	@Autowired
+	IContratService contratService;
+	@Autowired
+	ContratRepository contratRepository;
+
+	@BeforeEach
+	void snapshot() {
+		contratSnapshot.changerMode(ModeAnalytique.SNAPSHOT);
+	}
+
+	@AfterEach
+	void base() {
+		contratSnapshot.changerMode(ModeAnalytique.BASE);
+	}
+
+	@Test
+	void memesResultatsQueLaBase() {
+		contratService.addContrat(contrat(DU.minusMonths(6), DU.plusMonths(1), Specialite.IA, false, 1000));
+		contratService.addContrat(contrat(DU.plusMonths(2), AU.plusYears(1), Specialite.CLOUD, true, 2500));
+		contratService.addContrat(contrat(DU.plusMonths(2), AU.plusYears(1), Specialite.CLOUD, false, 700));
+		contratService.addContrat(contrat(AU.plusDays(1), AU.plusYears(1), Specialite.IA, true, 400));
+		Contrat modifie = contratService.addContrat(contrat(DU.minusYears(3), DU.minusYears(2), null, false, 300));
+		modifie.setDateFinContrat(Date.valueOf(DU.plusDays(3)));
+		contratService.updateContrat(modifie);
+
+		Date du = Date.valueOf(DU);
+		Date au = Date.valueOf(AU);
+		assertEquals(contratRepository.getnbContratsValides(du, au), contratSnapshot.nbContratsValides(du, au));
+		assertEquals(texte(contratRepository.statistiquesParSpecialite(du, au)),
+				texte(contratSnapshot.statistiquesParSpecialite(du, au)));
+	}
+
+	@Test
+	void scanParallele() {
+		Date du = Date.valueOf(DU);
+		Date au = Date.valueOf(AU);
+		int avant = contratSnapshot.nbContratsValides(du, au);
+
+		// slots up to this id : the scan is split in fork/join tasks
+		Contrat lointain = contrat(DU, DU.plusDays(10), Specialite.SECURITE, false, 100);
+		lointain.setIdContrat(2 * ContratSnapshot.SEUIL_PARALLELE + 7);
+		contratSnapshot.appliquer(lointain);
+
+		assertEquals(avant + 1, contratSnapshot.nbContratsValides(du, au));
+	}
+
+	private static Contrat contrat(LocalDate debut, LocalDate fin, Specialite specialite, boolean archive, int montant) {
+		return new Contrat(Date.valueOf(debut), Date.valueOf(fin), specialite, archive, montant);
+	}
+
+	private static String texte(List<ContratSpecialiteStat> stats) {
+		return stats.stream()
+				.sorted(Comparator.comparing(s -> s.getSpecialite() == null ? "" : s.getSpecialite().name()))
+				.map(s -> s.getSpecialite() + ":" + s.getNbContrats() + ":" + s.getMontantTotal())
+				.collect(Collectors.joining(","));
+	}
+}
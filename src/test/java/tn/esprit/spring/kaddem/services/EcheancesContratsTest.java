@@ -0,0 +1,69 @@
+package tn.esprit.spring.kaddem.services;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.test.context.ActiveProfiles;
+import tn.esprit.spring.kaddem.CompatibiliteH2;
+
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.Statement;
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * The expiry run reads its contracts from the table : the rows inserted here in SQL, as by another node, are
+ * archived or reported within the id range of the chunk only.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+@Import(CompatibiliteH2.class)
+class EcheancesContratsTest {
+	@Autowired
+	IContratService contratService;
+	@Autowired
+	JdbcTemplate jdbcTemplate;
+
+	@Test
+	void contratsEcrisAilleursArchivesDansLaPlage() {
+		LocalDate aujourdhui = LocalDate.now();
+		int echu = inserer(aujourdhui.minusDays(1));
+		int prochain = inserer(aujourdhui.plusDays(ContratServiceImpl.JOURS_AVANT_ECHEANCE));
+		LocalDate prevenusJusquA = aujourdhui.plusDays(ContratServiceImpl.JOURS_AVANT_ECHEANCE - 1L);
+
+		assertEquals(0, contratService.retrieveAndUpdateStatusContrat(prevenusJusquA, prochain + 1, prochain + 100));
+		assertFalse(archive(echu));
+
+		// the expired contract archived, the one entering the window reported
+		assertEquals(2, contratService.retrieveAndUpdateStatusContrat(prevenusJusquA, echu, prochain));
+		assertTrue(archive(echu));
+		assertFalse(archive(prochain));
+
+		// already reported : only archives would count
+		assertEquals(0, contratService.retrieveAndUpdateStatusContrat(
+				aujourdhui.plusDays(ContratServiceImpl.JOURS_AVANT_ECHEANCE), echu, prochain));
+	}
+
+	private int inserer(LocalDate fin) {
+		GeneratedKeyHolder cle = new GeneratedKeyHolder();
+		jdbcTemplate.update(connection -> {
+			PreparedStatement ps = connection.prepareStatement("INSERT INTO contrat (date_debut_contrat, date_fin_contrat,"
+					+ " specialite, archive, montant_contrat) VALUES (?, ?, 'IA', false, 1000)", Statement.RETURN_GENERATED_KEYS);
+			ps.setDate(1, Date.valueOf(fin.minusYears(1)));
+			ps.setDate(2, Date.valueOf(fin));
+			return ps;
+		}, cle);
+		return cle.getKey().intValue();
+	}
+
+	private boolean archive(int idContrat) {
+		return jdbcTemplate.queryForObject("SELECT archive FROM contrat WHERE id_contrat = ?", Boolean.class, idContrat);
+	}
+}
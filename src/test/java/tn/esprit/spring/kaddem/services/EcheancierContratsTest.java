@@ -0,0 +1,132 @@
+package tn.esprit.spring.kaddem.services;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.system.CapturedOutput;
+import org.springframework.boot.test.system.OutputCaptureExtension;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import tn.esprit.spring.kaddem.CompatibiliteH2;
+import tn.esprit.spring.kaddem.entities.Contrat;
+import tn.esprit.spring.kaddem.entities.Specialite;
+import tn.esprit.spring.kaddem.repositories.ContratRepository;
+
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Notices and archiving of the contracts : a contract written with its end day inside the 15 days window is
+ * reported once it commits, again only when its end day moves ; a run archives what ended today or before and
+ * reports what entered the window after prevenusJusquA.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+@Import(CompatibiliteH2.class)
+@ExtendWith(OutputCaptureExtension.class)
+class EcheancierContratsTest {
+	private static final LocalDate AUJOURDHUI = LocalDate.now();
+
+	@Autowired
+	IContratService contratService;
+	@Autowired
+	EcheancierContrats echeancierContrats;
+	@Autowired
+	ContratRepository contratRepository;
+	@Autowired
+	PlatformTransactionManager transactionManager;
+
+	@Test
+	void planifierDansLaFenetre(CapturedOutput sortie) {
+		Contrat proche = contratService.addContrat(contrat(AUJOURDHUI.plusDays(10)));
+		Contrat lointain = contratService.addContrat(contrat(AUJOURDHUI.plusDays(ContratServiceImpl.JOURS_AVANT_ECHEANCE + 1)));
+		Contrat echu = contratService.addContrat(contrat(AUJOURDHUI));
+
+		assertEquals(1, preavis(sortie, proche, AUJOURDHUI.plusDays(10)));
+		assertEquals(0, preavis(sortie, lointain, AUJOURDHUI.plusDays(ContratServiceImpl.JOURS_AVANT_ECHEANCE + 1)));
+		assertEquals(0, preavis(sortie, echu, AUJOURDHUI));
+	}
+
+	@Test
+	void planifierSeulementQuandLaFinChange(CapturedOutput sortie) {
+		Contrat contrat = contratService.addContrat(contrat(AUJOURDHUI.plusDays(12)));
+		contrat.setMontantContrat(2000);
+		contratService.updateContrat(contrat);
+		assertEquals(1, preavis(sortie, contrat, AUJOURDHUI.plusDays(12)));
+
+		contrat.setDateFinContrat(Date.valueOf(AUJOURDHUI.plusDays(5)));
+		contratService.updateContrat(contrat);
+		assertEquals(1, preavis(sortie, contrat, AUJOURDHUI.plusDays(5)));
+	}
+
+	@Test
+	void planifierApresCommitSeulement(CapturedOutput sortie) {
+		Contrat contrat = contratService.addContrat(contrat(AUJOURDHUI.plusDays(40)));
+		contrat.setDateFinContrat(Date.valueOf(AUJOURDHUI.plusDays(3)));
+		new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+			echeancierContrats.planifier(contrat, null);
+			status.setRollbackOnly();
+		});
+
+		assertEquals(0, preavis(sortie, contrat, AUJOURDHUI.plusDays(3)));
+	}
+
+	@Test
+	void fenetreDePreavis(CapturedOutput sortie) {
+		Contrat entre = contratService.addContrat(contrat(AUJOURDHUI.plusDays(ContratServiceImpl.JOURS_AVANT_ECHEANCE)));
+		Contrat dejaPrevenu = contratService.addContrat(contrat(AUJOURDHUI.plusDays(ContratServiceImpl.JOURS_AVANT_ECHEANCE - 1L)));
+		Contrat horsFenetre = contratService.addContrat(contrat(AUJOURDHUI.plusDays(ContratServiceImpl.JOURS_AVANT_ECHEANCE + 1L)));
+		int idDebut = entre.getIdContrat();
+		int idFin = horsFenetre.getIdContrat();
+
+		// yesterday's run reported up to today + 14 : only the day entering the window today is new
+		assertEquals(1, echeancierContrats.traiterEcheances(AUJOURDHUI,
+				AUJOURDHUI.plusDays(ContratServiceImpl.JOURS_AVANT_ECHEANCE - 1L), idDebut, idFin));
+		assertEquals(2, preavis(sortie, entre, AUJOURDHUI.plusDays(ContratServiceImpl.JOURS_AVANT_ECHEANCE)));
+		assertEquals(1, preavis(sortie, dejaPrevenu, AUJOURDHUI.plusDays(ContratServiceImpl.JOURS_AVANT_ECHEANCE - 1L)));
+		assertEquals(0, preavis(sortie, horsFenetre, AUJOURDHUI.plusDays(ContratServiceImpl.JOURS_AVANT_ECHEANCE + 1L)));
+
+		// a later run of the same day reports nothing new
+		assertEquals(0, echeancierContrats.traiterEcheances(AUJOURDHUI,
+				AUJOURDHUI.plusDays(ContratServiceImpl.JOURS_AVANT_ECHEANCE), idDebut, idFin));
+	}
+
+	@Test
+	void archivageDesContratsEchus() {
+		Contrat hier = contratService.addContrat(contrat(AUJOURDHUI.minusDays(1)));
+		Contrat aujourdhui = contratService.addContrat(contrat(AUJOURDHUI));
+		Contrat demain = contratService.addContrat(contrat(AUJOURDHUI.plusDays(1)));
+		LocalDate finPreavis = AUJOURDHUI.plusDays(ContratServiceImpl.JOURS_AVANT_ECHEANCE);
+
+		assertEquals(2, echeancierContrats.traiterEcheances(AUJOURDHUI, finPreavis, hier.getIdContrat(),
+				demain.getIdContrat()));
+		assertTrue(archive(hier));
+		assertTrue(archive(aujourdhui));
+		assertFalse(archive(demain));
+
+		// archived contracts are no longer due
+		assertEquals(0, echeancierContrats.traiterEcheances(AUJOURDHUI, finPreavis, hier.getIdContrat(),
+				demain.getIdContrat()));
+	}
+
+	private static Contrat contrat(LocalDate fin) {
+		return new Contrat(Date.valueOf(fin.minusYears(1)), Date.valueOf(fin), Specialite.IA, false, 1000);
+	}
+
+	private static int preavis(CapturedOutput sortie, Contrat contrat, LocalDate fin) {
+		String ligne = "Contrat " + contrat.getIdContrat() + " : fin le " + fin;
+		return sortie.getOut().split(Pattern.quote(ligne), -1).length - 1;
+	}
+
+	private boolean archive(Contrat contrat) {
+		return contratRepository.findById(contrat.getIdContrat()).orElseThrow().getArchive();
+	}
+}
@@ -0,0 +1,43 @@
+package tn.esprit.spring.kaddem.services;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import tn.esprit.spring.kaddem.CompatibiliteH2;
+import tn.esprit.spring.kaddem.dto.EtudiantVue;
+import tn.esprit.spring.kaddem.dto.ImportRapport;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Imported students reach the search index without a reload : each chunk adds its rows, with their generated
+ * ids, once it has committed.
+ */
+@SpringBootTest(properties = "kaddem.import.chunk-size=2")
+@ActiveProfiles("test")
+@Import(CompatibiliteH2.class)
+class ImportServiceImplTest {
+
+	@Autowired
+	IImportService importService;
+	@Autowired
+	IndexEtudiants indexEtudiants;
+
+	@Test
+	void etudiantsImportesIndexes() {
+		String csv = "nomE,prenomE\nZarkaoui,Ines\nZarkaoui,Malek\nZarkaoui,Yassine\n";
+		ImportRapport rapport = importService.importerEtudiants(
+				new ByteArrayInputStream(csv.getBytes(StandardCharsets.UTF_8)), "text/csv");
+
+		assertEquals(3, rapport.getLignesInserees());
+		List<EtudiantVue> trouves = indexEtudiants.rechercher("zarkaoui", 10);
+		assertEquals(3, trouves.size());
+		assertEquals(1, indexEtudiants.rechercher("zarkaoui malek", 10).size());
+	}
+}
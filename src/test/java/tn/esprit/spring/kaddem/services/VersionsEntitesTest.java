@@ -0,0 +1,73 @@
+package tn.esprit.spring.kaddem.services;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import tn.esprit.spring.kaddem.datasource.LecturePrimaire;
+import tn.esprit.spring.kaddem.entities.Contrat;
+import tn.esprit.spring.kaddem.entities.Equipe;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class VersionsEntitesTest {
+
+	@AfterEach
+	void liberer() {
+		LecturePrimaire.liberer();
+	}
+
+	@Test
+	void ecritureRecenteLueSurLePrimaire() {
+		VersionsEntites versions = new VersionsEntites(10, 60_000);
+		versions.etag(Contrat.class, 1);
+		assertFalse(LecturePrimaire.isDemandee());
+
+		versions.modifier(Equipe.class, 3);
+		versions.etag(Contrat.class, 1);
+		assertFalse(LecturePrimaire.isDemandee());
+		// a dependency written inside the lag window is enough
+		versions.etag(Contrat.class, Equipe.class);
+		assertTrue(LecturePrimaire.isDemandee());
+	}
+
+	@Test
+	void sansReplicasPasDeLecturePrimaire() {
+		VersionsEntites versions = new VersionsEntites(10, 0);
+		versions.modifier(Contrat.class, 1);
+		versions.etag(Contrat.class, 1);
+		assertFalse(LecturePrimaire.isDemandee());
+	}
+
+	@Test
+	void ecritureSansIdsChangeLesTagsDesLignes() {
+		VersionsEntites versions = new VersionsEntites(10, 0);
+		String inconnue = versions.etag(Contrat.class, 500);
+		versions.modifier(Contrat.class, 1);
+		assertEquals(inconnue, versions.etag(Contrat.class, 500));
+
+		// an import may have created row 500
+		versions.modifier(Contrat.class);
+		assertNotEquals(inconnue, versions.etag(Contrat.class, 500));
+	}
+
+	@Test
+	void lignesBorneesSansTagPerime() {
+		VersionsEntites versions = new VersionsEntites(10, 0);
+		versions.modifier(Contrat.class, 1);
+		String ligne1 = versions.etag(Contrat.class, 1);
+		String ligne2 = versions.etag(Contrat.class, 2);
+
+		versions.modifier(Contrat.class, List.of(3, 4, 5, 6, 7, 8, 9, 10, 11, 12));
+		assertNotEquals(ligne1, versions.etag(Contrat.class, 1));
+		assertNotEquals(ligne2, versions.etag(Contrat.class, 2));
+
+		String apres = versions.etag(Contrat.class, 1);
+		versions.modifier(Contrat.class, 2);
+		assertEquals(apres, versions.etag(Contrat.class, 1));
+		assertNotEquals(apres, versions.etag(Contrat.class, 2));
+	}
+}